@@ -0,0 +1,55 @@
+package com.github.davenedde.gameengine;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Choosing the computer's move from reward lookups versus from the precompiled best-move table */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BestMoveBenchmark {
+    private PolicySnapshot policy;
+    private BestMoveTable bestMoveTable;
+    private Board[] boards;
+    private int boardIndex;
+
+
+    @Setup
+    public void setUp() {
+        List<Board> reachableBoards = ConvergenceMonitor.reachableUnfinishedBoards(BoardGeometry.STANDARD, Board.CELLS);
+        boards = reachableBoards.toArray(new Board[0]);
+
+        policy = new PolicySnapshot(new ValueIterationEngine().train());
+        bestMoveTable = new BestMoveTable(policy);
+    }
+
+    private Board nextBoard() {
+        boardIndex = boardIndex + 1 < boards.length ? boardIndex + 1 : 0;
+        return boards[boardIndex];
+    }
+
+
+    @Benchmark
+    public Position policySnapshot() {
+        return policy.getBestMove(nextBoard());
+    }
+
+    @Benchmark
+    public Position bestMoveTable() {
+        return bestMoveTable.getBestMove(nextBoard());
+    }
+}
\ No newline at end of file
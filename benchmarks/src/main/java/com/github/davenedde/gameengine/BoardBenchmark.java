@@ -0,0 +1,60 @@
+package com.github.davenedde.gameengine;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Board operations used on every ply of every training game */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BoardBenchmark {
+    /** A mid-game board (X center, O corner, X corner) with O to move, so no operation can short-circuit */
+    private Board board;
+    private Position move;
+
+
+    @Setup
+    public void setUp() {
+        board = new Board(Player.X)
+            .playMove(Position.fromPositionNumber(5))
+            .playMove(Position.fromPositionNumber(1))
+            .playMove(Position.fromPositionNumber(9));
+        move = Position.fromPositionNumber(3);
+    }
+
+
+    @Benchmark
+    public Board playMove() {
+        return board.playMove(move);
+    }
+
+    @Benchmark
+    public Optional<Player> getWinner() {
+        return board.getWinner();
+    }
+
+    @Benchmark
+    public List<Board> getEquivalentBoards() {
+        return board.getEquivalentBoards();
+    }
+
+    @Benchmark
+    public List<Position> getEmptyPositions() {
+        return board.getEmptyPositions();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.github.davenedde.gameengine;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reward lookups and stores over every reachable board, as done by training and by the computer player, with the
+ * rewards on the heap, quantized in a {@link QuantizedRewardTable} or in a {@link MappedRewardStore}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BoardRewardsBenchmark {
+    @Param({"heap", "quantized", "mapped"})
+    public String store;
+
+    private MappedRewardStore mappedRewardStore;
+    private BoardRewards boardRewards;
+    private Board[] boards;
+    private int boardIndex;
+
+
+    @Setup
+    public void setUp() throws IOException {
+        List<Board> reachableBoards = new ArrayList<>();
+        addReachableBoards(new Board(Player.X), reachableBoards);
+        boards = reachableBoards.toArray(new Board[0]);
+
+        if (store.equals("mapped")) {
+            mappedRewardStore = new MappedRewardStore(Paths.get("."), boards.length);
+            boardRewards = new BoardRewards(mappedRewardStore);
+        } else if (store.equals("quantized")) {
+            boardRewards = new BoardRewards(new QuantizedRewardTable());
+        } else {
+            boardRewards = new BoardRewards();
+        }
+        for (Board board : boards) {
+            boardRewards.setRewardCurrentPlayer(board, 0.5);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (mappedRewardStore != null) {
+            mappedRewardStore.close();
+        }
+    }
+
+    private static void addReachableBoards(Board board, List<Board> reachableBoards) {
+        if (reachableBoards.contains(board)) {
+            return;
+        }
+        reachableBoards.add(board);
+
+        if (!board.getWinner().isPresent()) {
+            for (Position position : board.getEmptyPositions()) {
+                addReachableBoards(board.playMove(position), reachableBoards);
+            }
+        }
+    }
+
+    private Board nextBoard() {
+        boardIndex = boardIndex + 1 < boards.length ? boardIndex + 1 : 0;
+        return boards[boardIndex];
+    }
+
+
+    @Benchmark
+    public double getRewardCurrentPlayer() {
+        return boardRewards.getRewardCurrentPlayer(nextBoard());
+    }
+
+    @Benchmark
+    public void setRewardCurrentPlayer() {
+        boardRewards.setRewardCurrentPlayer(nextBoard(), 0.75);
+    }
+}
\ No newline at end of file
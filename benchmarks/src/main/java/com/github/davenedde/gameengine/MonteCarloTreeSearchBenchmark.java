@@ -0,0 +1,47 @@
+package com.github.davenedde.gameengine;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** One Monte Carlo tree search of a fixed number of playouts from an empty board, on a single thread */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MonteCarloTreeSearchBenchmark {
+    private static final long PLAYOUTS = 10_000;
+    /** Long enough that the playout budget always runs out first */
+    private static final long MILLIS_PER_MOVE = 60_000;
+
+    @Param({"3,3,3", "7,7,5"})
+    public String board;
+
+    private MonteCarloTreeSearch search;
+    private Board emptyBoard;
+
+
+    @Setup
+    public void setUp() {
+        search = new MonteCarloTreeSearch(null, MILLIS_PER_MOVE, PLAYOUTS, 1, MonteCarloTreeSearch.DEFAULT_NODE_CAPACITY);
+        emptyBoard = new Board(BoardGeometry.parse(board), Player.X);
+    }
+
+
+    @Benchmark
+    public Position getBestMove() {
+        return search.getBestMove(emptyBoard);
+    }
+}
\ No newline at end of file
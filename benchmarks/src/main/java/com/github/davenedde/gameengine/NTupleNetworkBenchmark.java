@@ -0,0 +1,84 @@
+package com.github.davenedde.gameengine;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** N-tuple network evaluation and backup over random mid-game boards, and a complete n-tuple training episode */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NTupleNetworkBenchmark {
+    private static final int BOARD_COUNT = 4096;
+
+    @Param({"3,3,3", "7,7,5"})
+    public String board;
+
+    private NTupleNetwork network;
+    private NTupleTrainingEngine trainingEngine;
+    private long[] moverMasks;
+    private long[] opponentMasks;
+    private int boardIndex;
+
+
+    @Setup
+    public void setUp() {
+        BoardGeometry geometry = BoardGeometry.parse(board);
+        network = new NTupleNetwork(geometry);
+        trainingEngine = new NTupleTrainingEngine(network, new SplittableRandom(), TrainingEngine.DEFAULT_MAX_TRAINING_GAMES);
+
+        // Random boards up to half full, without checking for wins; evaluation only reads the masks
+        SplittableRandom random = new SplittableRandom(1);
+        moverMasks = new long[BOARD_COUNT];
+        opponentMasks = new long[BOARD_COUNT];
+        for (int i = 0; i < BOARD_COUNT; i++) {
+            long[] masks = new long[2];
+            for (int ply = random.nextInt(geometry.getCells() / 2); ply > 0; ply--) {
+                long emptyMask = ~(masks[0] | masks[1]) & geometry.getFullMask();
+                for (int skip = random.nextInt(Long.bitCount(emptyMask)); skip > 0; skip--) {
+                    emptyMask &= emptyMask - 1;
+                }
+                masks[ply % 2] |= Long.lowestOneBit(emptyMask);
+            }
+            moverMasks[i] = masks[0];
+            opponentMasks[i] = masks[1];
+        }
+    }
+
+    private int nextBoard() {
+        boardIndex = (boardIndex + 1) & (BOARD_COUNT - 1);
+        return boardIndex;
+    }
+
+
+    @Benchmark
+    public double getValue() {
+        int i = nextBoard();
+        return network.getValue(moverMasks[i], opponentMasks[i]);
+    }
+
+    @Benchmark
+    public void backUp() {
+        int i = nextBoard();
+        network.backUp(moverMasks[i], opponentMasks[i], 0.75, NTupleTrainingEngine.DEFAULT_TRAINING_RATE);
+    }
+
+    @Benchmark
+    public double playEpisode() {
+        return trainingEngine.playEpisode();
+    }
+}
\ No newline at end of file
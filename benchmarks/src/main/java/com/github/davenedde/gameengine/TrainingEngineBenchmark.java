@@ -0,0 +1,54 @@
+package com.github.davenedde.gameengine;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** One complete self-play training episode: move selection, game play and the backup pass */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TrainingEngineBenchmark {
+    private TrainingEngine trainingEngine;
+    private TrainingEngine softmaxTrainingEngine;
+
+
+    @Setup
+    public void setUp() {
+        trainingEngine = new TrainingEngine();
+        softmaxTrainingEngine = new TrainingEngine(new BoardRewards(), new SplittableRandom(),
+            TrainingEngine.DEFAULT_MAX_TRAINING_GAMES, new SoftmaxExploration());
+    }
+
+
+    /** Episode plus building the GameResult for callers that want the moves */
+    @Benchmark
+    public GameResult playGame() {
+        return trainingEngine.playGame();
+    }
+
+    /** Episode only, as run by the training loops */
+    @Benchmark
+    public Player playEpisode() {
+        return trainingEngine.playEpisode();
+    }
+
+    /** Episode exploring with softmax sampling instead of uniform random moves */
+    @Benchmark
+    public Player playEpisodeSoftmax() {
+        return softmaxTrainingEngine.playEpisode();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.github.davenedde.gameengine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class BestMoveTableTest {
+    @Test
+    void compiledMovesAgreeWithTheRewards() {
+        BoardRewards boardRewards = TestBoards.randomRewards(BoardGeometry.STANDARD, 3);
+        PolicySnapshot policy = new PolicySnapshot(boardRewards);
+        BestMoveTable table = new BestMoveTable(policy);
+
+        for (Board board : TestBoards.reachableBoards(BoardGeometry.STANDARD)) {
+            if (board.getWinner().isPresent()) {
+                assertNull(table.getBestMove(board), board.toString());
+            } else {
+                assertEquals(TestBoards.greedyMove(boardRewards, board), table.getBestMove(board), board.toString());
+                assertEquals(policy.getBestMove(board), table.getBestMove(board), board.toString());
+            }
+        }
+    }
+
+    @Test
+    void compiledSolverMovesAreOptimal() {
+        BoardRewards boardRewards = new BoardRewards();
+        NegamaxSolver solver = new NegamaxSolver();
+        solver.fillRewards(boardRewards);
+        BestMoveTable table = new BestMoveTable(new PolicySnapshot(boardRewards));
+
+        for (Board board : TestBoards.reachableBoards(BoardGeometry.STANDARD)) {
+            if (!board.getWinner().isPresent()) {
+                assertTrue(solver.isOptimalMove(board, table.getBestMove(board)), board.toString());
+            }
+        }
+    }
+
+    @Test
+    void onlyStandardBoardPoliciesCompile() {
+        PolicySnapshot policy = new PolicySnapshot(new BoardRewards(BoardGeometry.parse("4,4,3")));
+        assertThrows(IllegalArgumentException.class, () -> new BestMoveTable(policy));
+    }
+}
\ No newline at end of file
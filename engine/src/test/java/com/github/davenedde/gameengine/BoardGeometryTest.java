@@ -0,0 +1,108 @@
+package com.github.davenedde.gameengine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Symmetries and canonical keys on square and non-square boards, with exact keys packed in one or several lookup
+ * chunks and with Zobrist keys.
+ */
+class BoardGeometryTest {
+    private static final int RANDOM_BOARDS = 2000;
+
+
+    @ParameterizedTest
+    @ValueSource(strings = {"3,3,3", "4,4,3", "7,7,5", "3,4,3", "3,5,3", "5,6,4", "6,9,4"})
+    void squareBoardsHaveEightSymmetriesAndOthersFour(String mnk) {
+        BoardGeometry geometry = BoardGeometry.parse(mnk);
+        assertEquals(geometry.getRows() == geometry.getCols() ? 8 : 4, geometry.getSymmetryCount());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"3,3,3", "4,4,3", "7,7,5", "3,4,3", "3,5,3", "5,6,4", "6,9,4"})
+    void everySymmetryMapsWinningLinesOntoWinningLines(String mnk) {
+        BoardGeometry geometry = BoardGeometry.parse(mnk);
+        Set<Long> lines = Arrays.stream(geometry.getWinningLines()).boxed().collect(Collectors.toSet());
+
+        for (int symmetry = 0; symmetry < geometry.getSymmetryCount(); symmetry++) {
+            assertEquals(geometry.getFullMask(), geometry.applySymmetry(geometry.getFullMask(), symmetry));
+            for (long line : geometry.getWinningLines()) {
+                assertTrue(lines.contains(geometry.applySymmetry(line, symmetry)), "symmetry " + symmetry + " of line " + line);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"3,3,3", "4,4,3", "7,7,5", "3,4,3", "3,5,3", "5,6,4", "6,9,4"})
+    void canonicalKeyIsTheSameForEverySymmetry(String mnk) {
+        BoardGeometry geometry = BoardGeometry.parse(mnk);
+        SplittableRandom random = new SplittableRandom(mnk.hashCode());
+
+        for (int i = 0; i < RANDOM_BOARDS; i++) {
+            Board board = randomBoard(geometry, random);
+            boolean oToMove = board.getCurrentPlayer() == Player.O;
+            long canonicalKey = board.getCanonicalKey();
+
+            long smallestKey = Long.MAX_VALUE;
+            for (int symmetry = 0; symmetry < geometry.getSymmetryCount(); symmetry++) {
+                long xMask = geometry.applySymmetry(board.getXMask(), symmetry);
+                long oMask = geometry.applySymmetry(board.getOMask(), symmetry);
+                assertEquals(canonicalKey, geometry.canonicalKey(xMask, oMask, oToMove), board + " symmetry " + symmetry);
+                smallestKey = Math.min(smallestKey, geometry.key(xMask, oMask, oToMove));
+            }
+            assertEquals(smallestKey, canonicalKey, board.toString());
+            assertNotEquals(canonicalKey, geometry.canonicalKey(board.getXMask(), board.getOMask(), !oToMove), board.toString());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"3,3,3", "4,4,3", "7,7,5", "3,5,3", "6,9,4"})
+    void canonicalKeyAfterMoveMatchesPlayingTheMove(String mnk) {
+        BoardGeometry geometry = BoardGeometry.parse(mnk);
+        SplittableRandom random = new SplittableRandom(mnk.hashCode());
+
+        for (int i = 0; i < RANDOM_BOARDS; i++) {
+            Board board = randomBoard(geometry, random);
+            for (long emptyMask = board.getEmptyMask(); emptyMask != 0 && !board.getWinner().isPresent(); emptyMask &= emptyMask - 1) {
+                Position move = geometry.getLowestPosition(emptyMask);
+                assertEquals(board.playMove(move).getCanonicalKey(), board.getCanonicalKeyAfterMove(move), board + " move " + move);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"3,3,3", "4,4,3", "3,5,3", "5,6,4"})
+    void exactKeysUnpackToTheSameBoard(String mnk) {
+        BoardGeometry geometry = BoardGeometry.parse(mnk);
+        SplittableRandom random = new SplittableRandom(mnk.hashCode());
+        assertTrue(geometry.hasExactKeys());
+
+        for (int i = 0; i < RANDOM_BOARDS; i++) {
+            Board board = randomBoard(geometry, random);
+            assertEquals(board, Board.fromKey(geometry, board.getKey()));
+        }
+    }
+
+
+    /** A board after a random number of random moves, stopping early if someone wins */
+    static Board randomBoard(BoardGeometry geometry, SplittableRandom random) {
+        Board board = new Board(geometry, random.nextBoolean() ? Player.X : Player.O);
+        for (int moves = random.nextInt(geometry.getCells()); moves > 0 && !board.getWinner().isPresent(); moves--) {
+            long emptyMask = board.getEmptyMask();
+            for (int skip = random.nextInt(Long.bitCount(emptyMask)); skip > 0; skip--) {
+                emptyMask &= emptyMask - 1;
+            }
+            board = board.playMove(geometry.getLowestPosition(emptyMask));
+        }
+        return board;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,130 @@
+package com.github.davenedde.gameengine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ConcurrentRewardTableTest {
+    private static final int THREADS = 4;
+    private static final int KEYS_PER_THREAD = 20_000;
+    private static final int BACKUPS_PER_THREAD = 10_000;
+
+
+    @Test
+    void putAndGet() {
+        ConcurrentRewardTable table = new ConcurrentRewardTable(16);
+        table.put(42, 0.75);
+        table.put(0, 0.25);
+
+        assertEquals(0.75, table.getOrDefault(42, 0.5));
+        assertEquals(0.25, table.getOrDefault(0, 0.5));
+        assertEquals(0.5, table.getOrDefault(43, 0.5));
+        assertEquals(2, table.size());
+
+        assertEquals(0.75, table.computeIfAbsent(42, 0.5));
+        assertEquals(0.5, table.computeIfAbsent(43, 0.5));
+        assertEquals(3, table.size());
+    }
+
+    @Test
+    void moveTowardStartsFromTheDefault() {
+        ConcurrentRewardTable table = new ConcurrentRewardTable(16);
+
+        table.moveToward(7, 1.0, 0.5, 0.5);
+        assertEquals(0.75, table.getOrDefault(7, 0));
+        table.moveToward(0, 0.0, 0.5, 0.5);
+        assertEquals(0.25, table.getOrDefault(0, 0));
+    }
+
+    @Test
+    void holdsItsExpectedSizeThenRefusesNewKeys() {
+        ConcurrentRewardTable table = new ConcurrentRewardTable(1000);
+        assertTrue(table.getMaxSize() >= 1000);
+
+        for (int i = 1; i <= table.getMaxSize(); i++) {
+            table.put(RewardTableTest.key(i), RewardTableTest.value(i));
+        }
+        assertEquals(table.getMaxSize(), table.size());
+
+        assertThrows(IllegalStateException.class, () -> table.put(RewardTableTest.key(-1), 0.5));
+        assertThrows(IllegalStateException.class, () -> table.moveToward(RewardTableTest.key(-2), 1.0, 0.5, 0.5));
+
+        // Keys already stored can still be updated
+        table.put(RewardTableTest.key(1), 0.125);
+        assertEquals(0.125, table.getOrDefault(RewardTableTest.key(1), -1));
+        assertEquals(RewardTableTest.value(2), table.getOrDefault(RewardTableTest.key(2), -1));
+    }
+
+    @Test
+    void clearEmptiesTheTable() {
+        ConcurrentRewardTable table = new ConcurrentRewardTable(1000);
+        for (int i = 0; i < table.getMaxSize(); i++) {
+            table.put(RewardTableTest.key(i), RewardTableTest.value(i));
+        }
+
+        table.clear();
+        assertEquals(0, table.size());
+        assertEquals(-1, table.getOrDefault(RewardTableTest.key(1), -1));
+
+        // Room for every key again
+        for (int i = 1; i <= table.getMaxSize(); i++) {
+            table.put(RewardTableTest.key(i), 0.5);
+        }
+        assertEquals(table.getMaxSize(), table.size());
+    }
+
+    @Test
+    void concurrentPutsAreAllKept() throws InterruptedException {
+        ConcurrentRewardTable table = new ConcurrentRewardTable(THREADS * KEYS_PER_THREAD);
+
+        runThreads(thread -> {
+            for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                int index = thread * KEYS_PER_THREAD + i;
+                table.put(RewardTableTest.key(index), RewardTableTest.value(index));
+            }
+        });
+
+        assertEquals(THREADS * KEYS_PER_THREAD, table.size());
+        for (int index = 0; index < THREADS * KEYS_PER_THREAD; index++) {
+            assertEquals(RewardTableTest.value(index), table.getOrDefault(RewardTableTest.key(index), -1));
+        }
+    }
+
+    @Test
+    void concurrentBackupsAreNotLost() throws InterruptedException {
+        ConcurrentRewardTable table = new ConcurrentRewardTable(16);
+        double rate = 1e-4;
+
+        runThreads(thread -> {
+            for (int i = 0; i < BACKUPS_PER_THREAD; i++) {
+                table.moveToward(42, 1.0, rate, 0.0);
+            }
+        });
+
+        // Every backup shrinks the distance to the target by the same factor, in whatever order they land
+        double expected = 1.0 - Math.pow(1.0 - rate, THREADS * BACKUPS_PER_THREAD);
+        assertEquals(expected, table.getOrDefault(42, -1), 1e-9);
+    }
+
+
+    private interface Worker {
+        void run(int thread);
+    }
+
+    private static void runThreads(Worker worker) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            int thread = i;
+            threads.add(new Thread(() -> worker.run(thread)));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+}
\ No newline at end of file
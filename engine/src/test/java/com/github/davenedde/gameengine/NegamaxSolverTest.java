@@ -0,0 +1,73 @@
+package com.github.davenedde.gameengine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class NegamaxSolverTest {
+    @Test
+    void ticTacToeIsADraw() {
+        NegamaxSolver solver = new NegamaxSolver();
+        for (Player firstPlayer : new Player[] {Player.X, Player.O}) {
+            NegamaxSolver.SearchResult result = solver.solve(new Board(firstPlayer));
+            assertTrue(result.isExact());
+            assertEquals(0, result.getScore());
+            assertEquals(0.5, NegamaxSolver.toReward(result.getScore()));
+        }
+    }
+
+    @Test
+    void everyOpeningMoveKeepsTheDraw() {
+        NegamaxSolver solver = new NegamaxSolver();
+        Board board = new Board(Player.X);
+        for (Position move : board.getEmptyPositions()) {
+            assertEquals(0, solver.getScore(board.playMove(move)), "opening " + move);
+            assertTrue(solver.isOptimalMove(board, move));
+        }
+    }
+
+    @Test
+    void takesAnImmediateWin() {
+        // X X .
+        // O O .
+        // . . .
+        Board board = play(new Board(Player.X), 1, 4, 2, 5);
+
+        NegamaxSolver.SearchResult result = new NegamaxSolver().solve(board);
+        assertTrue(result.getScore() > NegamaxSolver.WIN_SCORE);
+        assertEquals(Position.fromPositionNumber(3), result.getBestMove());
+    }
+
+    @Test
+    void seesAForkCannotBeStopped() {
+        // X O .
+        // . X .
+        // X . O   with O to move, facing 3 and 4
+        Board board = play(new Board(Player.X), 1, 2, 5, 9, 7);
+
+        NegamaxSolver solver = new NegamaxSolver();
+        assertTrue(solver.getScore(board) < -NegamaxSolver.WIN_SCORE);
+        for (Position move : board.getEmptyPositions()) {
+            assertTrue(solver.isOptimalMove(board, move), "every move loses, so each is as good as any other");
+        }
+    }
+
+    @Test
+    void threeInARowOnFourByThreeIsAFirstPlayerWin() {
+        Board board = new Board(BoardGeometry.parse("3,4,3"), Player.X);
+        NegamaxSolver.SearchResult result = new NegamaxSolver().solve(board);
+
+        assertTrue(result.isExact());
+        assertTrue(result.getScore() > NegamaxSolver.WIN_SCORE);
+        assertTrue(new NegamaxSolver().isOptimalMove(board, result.getBestMove()));
+    }
+
+
+    private static Board play(Board board, int... positionNumbers) {
+        for (int positionNumber : positionNumbers) {
+            board = board.playMove(Position.fromPositionNumber(positionNumber));
+        }
+        return board;
+    }
+}
\ No newline at end of file
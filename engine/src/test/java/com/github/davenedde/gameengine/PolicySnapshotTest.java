@@ -0,0 +1,62 @@
+package com.github.davenedde.gameengine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class PolicySnapshotTest {
+    @ParameterizedTest
+    @ValueSource(strings = {"3,3,3", "3,4,3"})
+    void snapshotHoldsEveryReward(String mnk) {
+        BoardRewards boardRewards = TestBoards.randomRewards(BoardGeometry.parse(mnk), 1);
+        PolicySnapshot policy = new PolicySnapshot(boardRewards);
+
+        assertEquals(boardRewards.size(), policy.size());
+        boardRewards.forEachReward((key, reward) -> assertEquals(reward, policy.getRewardCurrentPlayer(key)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"3,3,3", "3,4,3"})
+    void bestMovesAgreeWithTheRewards(String mnk) {
+        BoardGeometry geometry = BoardGeometry.parse(mnk);
+        BoardRewards boardRewards = TestBoards.randomRewards(geometry, 2);
+        PolicySnapshot policy = new PolicySnapshot(boardRewards);
+
+        for (Board board : TestBoards.reachableBoards(geometry)) {
+            assertEquals(boardRewards.getRewardCurrentPlayer(board), policy.getRewardCurrentPlayer(board));
+            assertEquals(boardRewards.getRewardOtherPlayer(board), policy.getRewardOtherPlayer(board));
+            if (!board.getWinner().isPresent()) {
+                assertEquals(TestBoards.greedyMove(boardRewards, board), policy.getBestMove(board), board.toString());
+            }
+        }
+    }
+
+    @Test
+    void laterChangesToTheRewardsAreNotSeen() {
+        BoardRewards boardRewards = new BoardRewards();
+        Board board = new Board(Player.X);
+        boardRewards.setRewardCurrentPlayer(board, 0.75);
+
+        PolicySnapshot policy = new PolicySnapshot(boardRewards);
+        boardRewards.setRewardCurrentPlayer(board, 0.25);
+        boardRewards.setRewardCurrentPlayer(board.playMove(Position.fromPositionNumber(5)), 0.0);
+
+        assertEquals(0.75, policy.getRewardCurrentPlayer(board));
+        assertEquals(BoardRewards.DEFAULT_REWARD, policy.getRewardCurrentPlayer(board.playMove(Position.fromPositionNumber(5))));
+        assertEquals(1, policy.size());
+    }
+
+    @Test
+    void fullBoardHasNoBestMove() {
+        PolicySnapshot policy = new PolicySnapshot(new BoardRewards());
+        Board board = new Board(Player.X);
+        // X O X / X O O / O X X, a draw
+        for (int positionNumber : new int[] {1, 2, 3, 5, 4, 6, 8, 7, 9}) {
+            board = board.playMove(Position.fromPositionNumber(positionNumber));
+        }
+        assertNull(policy.getBestMove(board));
+    }
+}
\ No newline at end of file
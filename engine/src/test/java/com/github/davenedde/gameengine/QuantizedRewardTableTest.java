@@ -0,0 +1,69 @@
+package com.github.davenedde.gameengine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class QuantizedRewardTableTest {
+    private static final double LEVEL = 1.0 / QuantizedRewardTable.LEVELS;
+    private static final int VALUES = 100_000;
+
+
+    @Test
+    void storedRewardsAreWithinHalfALevel() {
+        // Starting small also checks that values survive the table doubling
+        QuantizedRewardTable table = new QuantizedRewardTable(2);
+        for (int i = 0; i <= VALUES; i++) {
+            table.put(RewardTableTest.key(i), (double) i / VALUES);
+        }
+
+        assertEquals(VALUES + 1, table.size());
+        for (int i = 0; i <= VALUES; i++) {
+            double reward = (double) i / VALUES;
+            assertEquals(reward, table.getOrDefault(RewardTableTest.key(i), -1), LEVEL / 2 + 1e-12);
+        }
+    }
+
+    @Test
+    void defaultAndTerminalRewardsAreExact() {
+        QuantizedRewardTable table = new QuantizedRewardTable();
+        for (double reward : new double[] {0.0, BoardRewards.DEFAULT_REWARD, 1.0}) {
+            table.put(42, reward);
+            assertEquals(reward, table.getOrDefault(42, -1));
+        }
+        assertEquals(BoardRewards.DEFAULT_REWARD, table.computeIfAbsent(43, BoardRewards.DEFAULT_REWARD));
+    }
+
+    @Test
+    void rewardsOutsideTheRangeAreClamped() {
+        QuantizedRewardTable table = new QuantizedRewardTable();
+        table.put(1, -0.25);
+        table.put(2, 1.25);
+        table.moveToward(3, 2.0, 1.0, 0.5);
+
+        assertEquals(0.0, table.getOrDefault(1, -1));
+        assertEquals(1.0, table.getOrDefault(2, -1));
+        assertEquals(1.0, table.getOrDefault(3, -1));
+    }
+
+    @Test
+    void backupsSmallerThanALevelAreUnbiased() {
+        // Each backup is a quarter of a level, which rounding to the nearest level would throw away
+        QuantizedRewardTable table = new QuantizedRewardTable(VALUES);
+        double rate = 0.5 * LEVEL;
+        for (int i = 0; i < VALUES; i++) {
+            table.put(RewardTableTest.key(i), 0.5);
+            table.moveToward(RewardTableTest.key(i), 1.0, rate, 0.5);
+        }
+
+        double sum = 0;
+        for (int i = 0; i < VALUES; i++) {
+            double reward = table.getOrDefault(RewardTableTest.key(i), -1);
+            assertTrue(reward == 0.5 || reward == 0.5 + LEVEL, "reward " + reward);
+            sum += reward;
+        }
+        double meanStepInLevels = (sum / VALUES - 0.5) / LEVEL;
+        assertEquals(0.25, meanStepInLevels, 0.01);
+    }
+}
\ No newline at end of file
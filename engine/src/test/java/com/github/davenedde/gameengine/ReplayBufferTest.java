@@ -0,0 +1,114 @@
+package com.github.davenedde.gameengine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class ReplayBufferTest {
+    private static final int SAMPLES = 400_000;
+    /** Allowed difference between a sampled fraction and its expected probability, over 10 standard deviations */
+    private static final double TOLERANCE = 0.01;
+
+
+    @Test
+    void storesEachGame() {
+        ReplayBuffer buffer = new ReplayBuffer(4, ReplayBuffer.Sampling.UNIFORM);
+        addGame(buffer, 100, 3);
+
+        assertEquals(1, buffer.size());
+        assertEquals(3, buffer.getLength(0));
+        for (int ply = 0; ply < 3; ply++) {
+            assertEquals(ply + 1, buffer.getMove(0, ply));
+        }
+        for (int ply = 0; ply <= 3; ply++) {
+            assertEquals(100 + ply, buffer.getBoardKey(0, ply));
+        }
+    }
+
+    @Test
+    void overwritesTheOldestGameWhenFull() {
+        ReplayBuffer buffer = new ReplayBuffer(2, ReplayBuffer.Sampling.UNIFORM);
+        addGame(buffer, 100, 5);
+        addGame(buffer, 200, 5);
+        addGame(buffer, 300, 7);
+
+        assertEquals(2, buffer.size());
+        assertEquals(7, buffer.getLength(0));
+        assertEquals(300, buffer.getBoardKey(0, 0));
+        assertEquals(200, buffer.getBoardKey(1, 0));
+    }
+
+    @Test
+    void uniformSamplingPicksEveryStoredGameEqually() {
+        ReplayBuffer buffer = new ReplayBuffer(8, ReplayBuffer.Sampling.UNIFORM);
+        for (int game = 0; game < 5; game++) {
+            addGame(buffer, game * 100, 5);
+        }
+
+        double[] fractions = sampleFractions(buffer, 8);
+        for (int slot = 0; slot < 8; slot++) {
+            assertEquals(slot < 5 ? 0.2 : 0.0, fractions[slot], TOLERANCE, "slot " + slot);
+        }
+    }
+
+    @Test
+    void prioritizedSamplingIsProportionalToPriority() {
+        ReplayBuffer buffer = new ReplayBuffer(8, ReplayBuffer.Sampling.PRIORITIZED);
+        for (int game = 0; game < 5; game++) {
+            addGame(buffer, game * 100, 5);
+        }
+        for (int slot = 0; slot < 4; slot++) {
+            buffer.updatePriority(slot, slot + 1);
+        }
+
+        // The fifth game is still at the initial priority of 1; the empty slots are never picked
+        double[] priorities = {1, 2, 3, 4, 1, 0, 0, 0};
+        double[] fractions = sampleFractions(buffer, 8);
+        for (int slot = 0; slot < 8; slot++) {
+            assertEquals(priorities[slot] / 11, fractions[slot], TOLERANCE, "slot " + slot);
+        }
+    }
+
+    @Test
+    void newGamesGetTheHighestPrioritySeen() {
+        ReplayBuffer buffer = new ReplayBuffer(4, ReplayBuffer.Sampling.PRIORITIZED);
+        addGame(buffer, 100, 5);
+        buffer.updatePriority(0, 3);
+        addGame(buffer, 200, 5);
+
+        double[] fractions = sampleFractions(buffer, 4);
+        assertEquals(0.5, fractions[0], TOLERANCE);
+        assertEquals(0.5, fractions[1], TOLERANCE);
+    }
+
+    @Test
+    void capacityMustBeAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new ReplayBuffer(6, ReplayBuffer.Sampling.UNIFORM));
+    }
+
+
+    /** Add a game of the given length whose board keys count up from firstKey */
+    private static void addGame(ReplayBuffer buffer, long firstKey, int length) {
+        long[] boardKeys = new long[length + 1];
+        byte[] moves = new byte[length];
+        for (int ply = 0; ply <= length; ply++) {
+            boardKeys[ply] = firstKey + ply;
+        }
+        for (int ply = 0; ply < length; ply++) {
+            moves[ply] = (byte) (ply + 1);
+        }
+        buffer.add(boardKeys, moves, length);
+    }
+
+    private static double[] sampleFractions(ReplayBuffer buffer, int capacity) {
+        SplittableRandom random = new SplittableRandom(1);
+        double[] fractions = new double[capacity];
+        for (int i = 0; i < SAMPLES; i++) {
+            fractions[buffer.sample(random)] += 1.0 / SAMPLES;
+        }
+        return fractions;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,120 @@
+package com.github.davenedde.gameengine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class RewardTableTest {
+    /** Enough keys to double a table created for two entries many times over */
+    private static final int KEYS = 100_000;
+
+
+    @Test
+    void putAndGet() {
+        RewardTable table = new RewardTable();
+        table.put(42, 0.75);
+
+        assertEquals(0.75, table.getOrDefault(42, 0.5));
+        assertEquals(0.5, table.getOrDefault(43, 0.5));
+        assertTrue(table.containsKey(42));
+        assertFalse(table.containsKey(43));
+        assertEquals(1, table.size());
+
+        table.put(42, 0.25);
+        assertEquals(0.25, table.getOrDefault(42, 0.5));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void computeIfAbsentStoresOnlyNewKeys() {
+        RewardTable table = new RewardTable();
+
+        assertEquals(0.5, table.computeIfAbsent(7, 0.5));
+        assertEquals(0.5, table.computeIfAbsent(7, 0.9));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void moveTowardStartsFromTheDefault() {
+        RewardTable table = new RewardTable();
+
+        table.moveToward(7, 1.0, 0.5, 0.5);
+        assertEquals(0.75, table.getOrDefault(7, 0));
+        table.moveToward(7, 0.0, 0.5, 0.5);
+        assertEquals(0.375, table.getOrDefault(7, 0));
+    }
+
+    @Test
+    void freeKeyIsAnOrdinaryKey() {
+        // 0 marks an empty slot, and is also the canonical key of the empty board with X to move
+        RewardTable table = new RewardTable();
+        assertEquals(0.5, table.getOrDefault(0, 0.5));
+
+        table.put(0, 0.9);
+        table.put(1, 0.1);
+        assertEquals(0.9, table.getOrDefault(0, 0.5));
+        assertEquals(0.1, table.getOrDefault(1, 0.5));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    void growsPastItsExpectedSize() {
+        RewardTable table = new RewardTable(2);
+        for (int i = 0; i < KEYS; i++) {
+            table.put(key(i), value(i));
+        }
+
+        assertEquals(KEYS, table.size());
+        for (int i = 0; i < KEYS; i++) {
+            assertEquals(value(i), table.getOrDefault(key(i), -1));
+        }
+    }
+
+    @Test
+    void forEachVisitsEveryEntryOnce() {
+        RewardTable table = new RewardTable(2);
+        for (int i = 0; i < KEYS; i++) {
+            table.put(key(i), value(i));
+        }
+
+        Map<Long, Double> visited = new HashMap<>();
+        table.forEach((key, value) -> assertNull(visited.put(key, value)));
+        assertEquals(KEYS, visited.size());
+        for (int i = 0; i < KEYS; i++) {
+            assertEquals(value(i), visited.get(key(i)));
+        }
+    }
+
+    @Test
+    void clearEmptiesTheTable() {
+        RewardTable table = new RewardTable(2);
+        for (int i = 0; i < KEYS; i++) {
+            table.put(key(i), value(i));
+        }
+
+        table.clear();
+        assertEquals(0, table.size());
+        assertFalse(table.containsKey(key(0)));
+        assertFalse(table.containsKey(key(KEYS - 1)));
+
+        table.put(key(1), 0.25);
+        assertEquals(0.25, table.getOrDefault(key(1), -1));
+        assertEquals(1, table.size());
+    }
+
+
+    /** Distinct keys spread over the whole long range, including 0 */
+    static long key(int i) {
+        return i * 0x9E3779B97F4A7C15L;
+    }
+
+    static double value(int i) {
+        return (i % 1000) / 1000.0;
+    }
+}
\ No newline at end of file
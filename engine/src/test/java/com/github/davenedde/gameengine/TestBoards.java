@@ -0,0 +1,64 @@
+package com.github.davenedde.gameengine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/** Boards and rewards shared by the tests */
+final class TestBoards {
+    private TestBoards() {
+    }
+
+
+    /** Every board reachable from either starting player, in every orientation */
+    static List<Board> reachableBoards(BoardGeometry geometry) {
+        List<Board> boards = new ArrayList<>();
+        Set<Long> visited = new HashSet<>();
+        Deque<Board> pending = new ArrayDeque<>();
+        pending.push(new Board(geometry, Player.X));
+        pending.push(new Board(geometry, Player.O));
+
+        while (!pending.isEmpty()) {
+            Board board = pending.pop();
+            if (!visited.add(board.getKey())) {
+                continue;
+            }
+            boards.add(board);
+
+            if (!board.getWinner().isPresent()) {
+                for (long emptyMask = board.getEmptyMask(); emptyMask != 0; emptyMask &= emptyMask - 1) {
+                    pending.push(board.playMove(geometry.getLowestPosition(emptyMask)));
+                }
+            }
+        }
+        return boards;
+    }
+
+    /** Rewards with a different random value for every reachable board, so no two moves tie */
+    static BoardRewards randomRewards(BoardGeometry geometry, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        BoardRewards boardRewards = new BoardRewards(geometry);
+        for (Board board : reachableBoards(geometry)) {
+            boardRewards.setRewardCurrentPlayer(board, random.nextDouble());
+        }
+        return boardRewards;
+    }
+
+    /** The move with the highest reward for the player about to move, read without storing unseen boards */
+    static Position greedyMove(BoardRewards boardRewards, Board board) {
+        Position bestMove = null;
+        double maxValue = -Double.MAX_VALUE;
+        for (Position move : board.getEmptyPositions()) {
+            double moveValue = 1.0 - boardRewards.peekRewardCurrentPlayer(board.getCanonicalKeyAfterMove(move));
+            if (moveValue > maxValue) {
+                maxValue = moveValue;
+                bestMove = move;
+            }
+        }
+        return bestMove;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,71 @@
+package com.github.davenedde.gameengine;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * A player for {@link Tournament} games.
+ * <p>
+ * Implementations are shared by every tournament thread, so they must not keep per-game state; any randomness comes
+ * from the generator passed in, which belongs to the calling thread.
+ */
+interface Agent {
+    /** Choose a move for the player about to move on an unfinished board */
+    Position chooseMove(Board board, RandomGenerator random);
+
+
+    /** Always plays the highest reward move of a trained policy */
+    static Agent greedy(PolicySnapshot policy) {
+        return (board, random) -> policy.getBestMove(board);
+    }
+
+    /** Plays a uniformly random empty space */
+    static Agent random() {
+        return Agent::randomMove;
+    }
+
+    /**
+     * Picks each move with probability proportional to exp(reward / temperature) under a trained policy,
+     * so lower temperatures play closer to greedy.
+     */
+    static Agent softmax(PolicySnapshot policy, double temperature) {
+        return (board, random) -> {
+            long emptyMask = board.getEmptyMask();
+
+            // Two passes over the moves instead of a weights array, so sampling does not allocate
+            double sumOfExpValues = 0;
+            for (long mask = emptyMask; mask != 0; mask &= mask - 1) {
+                sumOfExpValues += Math.exp(moveReward(policy, board, mask) / temperature);
+            }
+
+            double target = random.nextDouble() * sumOfExpValues;
+            long mask = emptyMask;
+            for (; (mask & (mask - 1)) != 0; mask &= mask - 1) {
+                target -= Math.exp(moveReward(policy, board, mask) / temperature);
+                if (target < 0) {
+                    break;
+                }
+            }
+            return board.getGeometry().getLowestPosition(mask);
+        };
+    }
+
+    /** Plays an optimal move, chosen at random among equally good ones, from an exact solution of the game */
+    static Agent solver() {
+        return new SolverAgent();
+    }
+
+
+    /** Reward for the player to move of playing the lowest empty space in mask */
+    private static double moveReward(PolicySnapshot policy, Board board, long mask) {
+        Position move = board.getGeometry().getLowestPosition(mask);
+        return 1.0 - policy.getRewardCurrentPlayer(board.getCanonicalKeyAfterMove(move));
+    }
+
+    private static Position randomMove(Board board, RandomGenerator random) {
+        long emptyMask = board.getEmptyMask();
+        for (int skip = random.nextInt(Long.bitCount(emptyMask)); skip > 0; skip--) {
+            emptyMask &= emptyMask - 1;
+        }
+        return board.getGeometry().getLowestPosition(emptyMask);
+    }
+}
\ No newline at end of file
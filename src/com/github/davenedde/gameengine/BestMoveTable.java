@@ -0,0 +1,56 @@
+package com.github.davenedde.gameengine;
+
+/**
+ * Greedy policy compiled ahead of time into a dense array of moves.
+ * <p>
+ * The whole state of the standard 3x3 board fits in {@link #STATE_COUNT} values, so the best move of every reachable board, in every
+ * orientation, is stored as a position number at the index of its {@link Board#getKey() key}.  Choosing a move is a
+ * single array read with no child boards and no hash lookups.  The moves are fixed when the table is compiled, so
+ * it suits serving a finished model rather than training, where the rewards change every game.
+ */
+final class BestMoveTable {
+    /** One entry per packed board state: X bits, O bits and the O-to-move bit */
+    static final int STATE_COUNT = 1 << (2 * Board.CELLS + 1);
+
+    /** Stored for boards that are finished or not reachable */
+    private static final byte NO_MOVE = 0;
+
+    private final byte[] bestMoves = new byte[STATE_COUNT];
+
+
+    /** Record the policy's best move for every unfinished board reachable from either starting player */
+    BestMoveTable(PolicySnapshot policy) {
+        if (!policy.getGeometry().equals(BoardGeometry.STANDARD)) {
+            throw new IllegalArgumentException("Only policies for the standard board can be compiled, got " + policy.getGeometry());
+        }
+
+        boolean[] visited = new boolean[STATE_COUNT];
+        compile(policy, new Board(Player.X), visited);
+        compile(policy, new Board(Player.O), visited);
+    }
+
+    private void compile(PolicySnapshot policy, Board board, boolean[] visited) {
+        int state = (int) board.getKey();
+        if (visited[state]) {
+            return;
+        }
+        visited[state] = true;
+
+        if (board.getWinner().isPresent()) {
+            return;
+        }
+
+        bestMoves[state] = (byte) policy.getBestMove(board).toPositionNumber();
+
+        for (long emptyMask = board.getEmptyMask(); emptyMask != 0; emptyMask &= emptyMask - 1) {
+            compile(policy, board.playMove(board.getGeometry().getLowestPosition(emptyMask)), visited);
+        }
+    }
+
+
+    /** Return the compiled best move for the player about to move, or null if the game is over */
+    public Position getBestMove(Board board) {
+        byte move = bestMoves[(int) board.getKey()];
+        return move != NO_MOVE ? Position.fromPositionNumber(move) : null;
+    }
+}
\ No newline at end of file
@@ -1,44 +1,64 @@
 package com.github.davenedde.gameengine;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
-import java.util.stream.Stream;
 
-/** Represents the state of the game board and whose turn it is */
+/**
+ * Represents the state of the game board and whose turn it is.
+ * <p>
+ * Each player's spaces are a bit mask over the board's {@link BoardGeometry}: a space's bit index is its position
+ * number - 1 (row-by-row from the upper-left).  The winner is found as each move is played, by checking only the
+ * winning lines through the space just taken.
+ */
 class Board {
-    static final int ROWS = 3;
-    static final int COLS = 3;
+    /** Shape of the standard board, for code that only plays ordinary tic-tac-toe */
+    static final int ROWS = BoardGeometry.STANDARD.getRows();
+    static final int COLS = BoardGeometry.STANDARD.getCols();
+    static final int CELLS = BoardGeometry.STANDARD.getCells();
 
-    private Marker[][] spaces = new Marker[ROWS][COLS];
+    /** Cached results so getWinner() never allocates */
+    private static final Optional<Player> X_WINS = Optional.of(Player.X);
+    private static final Optional<Player> O_WINS = Optional.of(Player.O);
+    private static final Optional<Player> TIE = Optional.of(Player.TIE);
 
-    /** Identifies who will play the next move on this board */
-    private Player currentPlayer;
+    private final BoardGeometry geometry;
 
+    /** Spaces taken by each player, and whose turn it is */
+    private final long xMask;
+    private final long oMask;
+    private final boolean oToMove;
 
+    /** Zobrist hash of the board, maintained incrementally by playMove */
+    private final long zobristHash;
+
+    /** One of the cached winner results, or Optional.empty() while the game is in progress */
+    private final Optional<Player> winner;
+
+
+    /** An empty standard board */
     public Board(Player currentPlayer) {
-        this.currentPlayer = currentPlayer;
-        for (Marker[] space : spaces) {
-            Arrays.fill(space, Marker.EMPTY);
-        }
+        this(BoardGeometry.STANDARD, currentPlayer);
     }
 
-    private Board(Board sourceBoard) {
-        currentPlayer = sourceBoard.currentPlayer;
-        toString = sourceBoard.toString;
+    /** An empty board of the given shape */
+    public Board(BoardGeometry geometry, Player currentPlayer) {
+        this(geometry, 0, 0, currentPlayer == Player.O);
+    }
 
-        spaces = new Marker[sourceBoard.spaces.length][];
-        for (int i = 0; i < sourceBoard.spaces.length; i++) {
-            spaces[i] = Arrays.copyOf(sourceBoard.spaces[i], sourceBoard.spaces[i].length);
-        }
+    private Board(BoardGeometry geometry, long xMask, long oMask, boolean oToMove) {
+        this(geometry, xMask, oMask, oToMove, geometry.zobristHash(xMask, oMask, oToMove), findWinner(geometry, xMask, oMask));
     }
 
-    private Board(Player currentPlayer, Marker[][] spaces) {
-        this.currentPlayer = currentPlayer;
-        this.spaces = spaces;
+    private Board(BoardGeometry geometry, long xMask, long oMask, boolean oToMove, long zobristHash, Optional<Player> winner) {
+        this.geometry = geometry;
+        this.xMask = xMask;
+        this.oMask = oMask;
+        this.oToMove = oToMove;
+        this.zobristHash = zobristHash;
+        this.winner = winner;
     }
 
     /** Cache for performance */
@@ -46,29 +66,43 @@ class Board {
 
     public String toString() {
         if (toString == null) {
-            toString = "Current com.github.davenedde.gameengine.Player: " + currentPlayer + "\n" +
-                IntStream.range(0, ROWS).mapToObj(row -> IntStream.range(0, COLS).mapToObj(col -> {
-                        switch (spaces[row][col]) {
-                            case X: return "X";
-                            case O: return "O";
-                            case EMPTY: return Integer.toString(new Position(row, col).toPositionNumber());
+            // Pad every space to the width of the largest position number so the columns line up
+            int width = Integer.toString(geometry.getCells()).length();
+            String separator = IntStream.range(0, geometry.getCols())
+                .mapToObj(col -> "-".repeat(width))
+                .collect(Collectors.joining("|", "\n", "\n"));
+
+            toString = "Current com.github.davenedde.gameengine.Player: " + getCurrentPlayer() + "\n" +
+                IntStream.range(0, geometry.getRows()).mapToObj(row -> IntStream.range(0, geometry.getCols()).mapToObj(col -> {
+                        switch (getMarker(row, col)) {
+                            case X: return pad("X", width);
+                            case O: return pad("O", width);
+                            case EMPTY: return pad(Integer.toString(row * geometry.getCols() + col + 1), width);
                             default: throw new RuntimeException("fail");
                         }
                     })
                     .collect(Collectors.joining("|")))
-                .collect(Collectors.joining("\n-|-|-\n"));
+                .collect(Collectors.joining(separator));
         }
 
         return toString;
     }
 
+    private static String pad(String text, int width) {
+        return " ".repeat(width - text.length()) + text;
+    }
+
+
+    public BoardGeometry getGeometry() {
+        return geometry;
+    }
 
     public Player getCurrentPlayer() {
-        return currentPlayer;
+        return oToMove ? Player.O : Player.X;
     }
 
     public Player getOtherPlayer() {
-        return currentPlayer.getOtherPlayer();
+        return getCurrentPlayer().getOtherPlayer();
     }
 
 
@@ -77,170 +111,150 @@ class Board {
      * through reflection and rotation
      */
     public List<Board> getEquivalentBoards() {
-        Board rotated90 = this.rotate90DegreesClockwise();
-        Board rotated180 = rotated90.rotate90DegreesClockwise();
-        Board rotated270 = rotated180.rotate90DegreesClockwise();
-        return Stream.of(
-            rotated90,
-            rotated90.reflectXAxis(),
-            rotated90.reflectYAxis(),
-            rotated180,
-            rotated180.reflectXAxis(),
-            rotated180.reflectYAxis(),
-            rotated270,
-            rotated270.reflectXAxis(),
-            rotated270.reflectYAxis())
+        return IntStream.range(1, geometry.getSymmetryCount())
+            .mapToObj(symmetry -> new Board(geometry,
+                geometry.applySymmetry(xMask, symmetry), geometry.applySymmetry(oMask, symmetry), oToMove))
             .distinct()
             .collect(Collectors.toList());
     }
 
-    /** Return a new Board that has been rotated 90 degrees clockwise */
-    private Board rotate90DegreesClockwise() {
-        int rows = spaces.length;
-        int cols = spaces[0].length;
-        Marker[][] rotatedSpaces = new Marker[cols][rows];
-
-        for (int row = 0; row < rows; row++) {
-            for (int col = 0; col < cols; col++) {
-                rotatedSpaces[col][rows - 1 - row] = spaces[row][col];
-            }
-        }
-
-        return new Board(currentPlayer, rotatedSpaces);
+    /**
+     * Return the key shared by this board and all of its rotations and reflections:
+     * the smallest key among the symmetric boards
+     */
+    long getCanonicalKey() {
+        return geometry.canonicalKey(xMask, oMask, oToMove);
     }
 
-    /** Return a new Board that has been reflected on the Y axis */
-    private Board reflectYAxis() {
-        int rows = spaces.length;
-        int cols = spaces[0].length;
-        Marker[][] reflectedSpaces = new Marker[cols][rows];
+    /** Return getCanonicalKey() of the board after playing pos, without creating that board */
+    long getCanonicalKeyAfterMove(Position pos) {
+        long bit = 1L << toEmptyCell(pos);
+        return oToMove
+            ? geometry.canonicalKey(xMask, oMask | bit, false)
+            : geometry.canonicalKey(xMask | bit, oMask, true);
+    }
 
-        for (int row = 0; row < rows; row++) {
-            for (int col = 0; col < cols; col++) {
-                reflectedSpaces[row][cols - 1 - col] = spaces[row][col];
-            }
+    public Board playMove(Position pos) {
+        int cell = toEmptyCell(pos);
+        long bit = 1L << cell;
+        long hash = zobristHash ^ geometry.zobristSpaceKey(getCurrentPlayer(), cell) ^ geometry.zobristOToMoveKey();
+
+        // Assume two player game that alternates.  Only the mover can have won, and only through the space just taken
+        if (oToMove) {
+            long newOMask = oMask | bit;
+            return new Board(geometry, xMask, newOMask, false, hash, winnerAfterMove(newOMask, cell, O_WINS));
+        } else {
+            long newXMask = xMask | bit;
+            return new Board(geometry, newXMask, oMask, true, hash, winnerAfterMove(newXMask, cell, X_WINS));
         }
-
-        return new Board(currentPlayer, reflectedSpaces);
     }
 
-    /** Return a new Board that has been reflected on the X axis */
-    private Board reflectXAxis() {
-        int rows = spaces.length;
-        int cols = spaces[0].length;
-        Marker[][] reflectedSpaces = new Marker[cols][rows];
-
-        for (int row = 0; row < rows; row++) {
-            System.arraycopy(spaces[row], 0, reflectedSpaces[rows - 1 - row], 0, cols);
+    private int toEmptyCell(Position pos) {
+        int cell = geometry.toCell(pos);
+        if (cell < 0) {
+            throw new RuntimeException("Position " + pos + " is not on the board");
         }
-
-        return new Board(currentPlayer, reflectedSpaces);
+        if (((xMask | oMask) & (1L << cell)) != 0) {
+            throw new RuntimeException("Tried to put piece in non-empty space");
+        }
+        return cell;
     }
 
-    public Board playMove(Position pos) {
-        Board nextBoard = new Board(this);
-        nextBoard.setMarker(pos.getRow(), pos.getCol(), currentPlayer.getMarker());
-
-        // Assume two player game that alternates
-        nextBoard.currentPlayer = currentPlayer.getOtherPlayer();
+    private Optional<Player> winnerAfterMove(long moverMask, int cell, Optional<Player> moverWins) {
+        if (geometry.completesLine(moverMask, cell)) {
+            return moverWins;
+        } else if ((xMask | oMask | (1L << cell)) != geometry.getFullMask()) {
+            return Optional.empty();
+        } else {
+            // No winning moves and no empty spaces means this is a tie
+            return TIE;
+        }
+    }
 
-        return nextBoard;
+    private static Optional<Player> findWinner(BoardGeometry geometry, long xMask, long oMask) {
+        if (geometry.hasWinningLine(xMask)) {
+            return X_WINS;
+        } else if (geometry.hasWinningLine(oMask)) {
+            return O_WINS;
+        } else if ((xMask | oMask) != geometry.getFullMask()) {
+            return Optional.empty();
+        } else {
+            return TIE;
+        }
     }
 
 
     public Optional<Player> getWinner() {
-        for (int row = 0; row < ROWS; row++) {
-            final int finalRow = row;
-            List<Marker> rowValues = IntStream.range(0, COLS)
-                    .mapToObj(col -> getMarker(finalRow, col))
-                    .distinct()
-                    .collect(Collectors.toList());
-            if (rowValues.size() == 1 && !rowValues.get(0).equals(Marker.EMPTY)) {
-                return Optional.of(Player.getPlayer(rowValues.get(0)));
-            }
-        }
+        return winner;
+    }
 
-        for (int col = 0; col < COLS; col++) {
-            final int finalCol = col;
-            List<Marker> colValues = IntStream.range(0, ROWS)
-                    .mapToObj(row -> getMarker(row, finalCol))
-                    .distinct()
-                    .collect(Collectors.toList());
-            if (colValues.size() == 1 && !colValues.get(0).equals(Marker.EMPTY)) {
-                return Optional.of(Player.getPlayer(colValues.get(0)));
-            }
-        }
 
-        List<Marker> diagonalValues1 = IntStream.range(0, ROWS)
-            .mapToObj(row -> getMarker(row, row))
-            .distinct()
-            .collect(Collectors.toList());
-        if (diagonalValues1.size() == 1 && !diagonalValues1.get(0).equals(Marker.EMPTY)) {
-            return Optional.of(Player.getPlayer(diagonalValues1.get(0)));
-        }
+    public List<Position> getEmptyPositions() {
+        List<Position> emptyPositions = new ArrayList<>(geometry.getCells());
 
-        List<Marker> diagonalValues2 = IntStream.range(0, ROWS)
-            .mapToObj(row -> getMarker(row, ROWS - row - 1))
-            .distinct()
-            .collect(Collectors.toList());
-        if (diagonalValues2.size() == 1 && !diagonalValues2.get(0).equals(Marker.EMPTY)) {
-            return Optional.of(Player.getPlayer(diagonalValues2.get(0)));
+        for (long emptyMask = getEmptyMask(); emptyMask != 0; emptyMask &= emptyMask - 1) {
+            emptyPositions.add(geometry.getLowestPosition(emptyMask));
         }
 
-
-        if (Position.stream().anyMatch(position -> getMarker(position.getRow(), position.getCol()) == Marker.EMPTY)) {
-            return Optional.empty();
-        } else {
-            // No winning moves and no empty spaces means this is a tie
-            return Optional.of(Player.TIE);
-        }
+        return emptyPositions;
     }
 
-
-    private void setMarker(int row, int col, Marker marker) {
-        if (spaces[row][col] == Marker.EMPTY) {
-            spaces[row][col] = marker;
-            toString = null;
+    public Marker getMarker(int row, int col) {
+        long bit = 1L << (row * geometry.getCols() + col);
+        if ((xMask & bit) != 0) {
+            return Marker.X;
+        } else if ((oMask & bit) != 0) {
+            return Marker.O;
         } else {
-            throw new RuntimeException("Tried to put piece in non-empty space");
+            return Marker.EMPTY;
         }
     }
 
-    public List<Position> getEmptyPositions() {
-        List<Position> emptyPositions = new ArrayList<>();
-
-        for (int row = 0; row < ROWS; row++) {
-            for (int col = 0; col < COLS; col++) {
-                if (spaces[row][col] == Marker.EMPTY) {
-                    emptyPositions.add(new Position(row, col));
-                }
-            }
-        }
+    long getXMask() {
+        return xMask;
+    }
 
-        return emptyPositions;
+    long getOMask() {
+        return oMask;
     }
 
-    public Marker getMarker(int row, int col) {
-        return spaces[row][col];
+    long getEmptyMask() {
+        return ~(xMask | oMask) & geometry.getFullMask();
     }
 
-    public int hashCode() {
-        final int PRIME = 31; // Prime number used as a multiplier
-        int result = 1;
+    /**
+     * Return a compact encoding of the spaces and the player to move.  Equal boards always have equal keys.
+     * The encoding is exact when {@link BoardGeometry#hasExactKeys()}, otherwise it is the Zobrist hash.
+     */
+    long getKey() {
+        return geometry.key(xMask, oMask, oToMove);
+    }
 
-        for (Marker[] space : spaces) {
-            for (Marker marker : space) {
-                result = PRIME * result + marker.ordinal();
-            }
+    /**
+     * Rebuild a board from {@link #getKey()}.  A {@link #getCanonicalKey() canonical key} gives the canonical orientation.
+     * Only boards with {@link BoardGeometry#hasExactKeys() exact keys} can be rebuilt.
+     */
+    static Board fromKey(BoardGeometry geometry, long key) {
+        if (!geometry.hasExactKeys()) {
+            throw new UnsupportedOperationException("Keys of " + geometry + " boards are hashes and cannot be unpacked");
         }
+        return new Board(geometry, geometry.keyXMask(key), geometry.keyOMask(key), geometry.keyOToMove(key));
+    }
+
+    /** Return a 64-bit hash of the spaces and the player to move, suitable for transposition tables */
+    long getZobristHash() {
+        return zobristHash;
+    }
 
-        return PRIME * result + currentPlayer.ordinal();
+    public int hashCode() {
+        return (int)(zobristHash ^ (zobristHash >>> 32));
     }
 
     public boolean equals(Object obj) {
         if (obj instanceof Board) {
-            return currentPlayer.equals(((Board)obj).currentPlayer) &&
-                Arrays.deepEquals(spaces, ((Board)obj).spaces);
+            Board other = (Board) obj;
+            return xMask == other.xMask && oMask == other.oMask && oToMove == other.oToMove
+                && geometry.equals(other.geometry);
         } else {
             return false;
         }
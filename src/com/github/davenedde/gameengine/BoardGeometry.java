@@ -0,0 +1,367 @@
+package com.github.davenedde.gameengine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * The shape of an m,n,k game: a board of rows x cols spaces, won by the first player to get k in a row horizontally,
+ * vertically or diagonally.  Tic-tac-toe is 3,3,3.
+ * <p>
+ * Everything that depends only on the shape is computed once here and shared by every board of that shape: the
+ * winning-line masks and, for each space, the lines passing through it, so a move is checked for a win against only
+ * those lines; the rotations and reflections used for canonical keys; the Zobrist keys; and one Position per space.
+ * <p>
+ * Spaces are bit indexes into a long, position number - 1, row-by-row from the upper-left, so a board has at most 64
+ * spaces.  Boards of up to 31 spaces have exact keys: both players' spaces and the player to move packed into one
+ * long.  Larger boards are keyed by their Zobrist hash, which is unique in practice but cannot be unpacked.
+ */
+final class BoardGeometry {
+    /** Ordinary tic-tac-toe */
+    static final BoardGeometry STANDARD = new BoardGeometry(3, 3, 3);
+
+    static final int MAX_CELLS = Long.SIZE;
+    /** Largest board whose X mask, O mask and player-to-move bit pack into a non-negative long */
+    private static final int MAX_EXACT_KEY_CELLS = (Long.SIZE - 2) / 2;
+
+    /** Symmetric masks are looked up this many spaces at a time, unless the whole board fits in MAX_SINGLE_CHUNK_BITS */
+    private static final int CHUNK_BITS = 8;
+    private static final int MAX_SINGLE_CHUNK_BITS = 12;
+
+    private final int rows;
+    private final int cols;
+    private final int winLength;
+    private final int cells;
+
+    /** Mask with a bit set for every space on the board */
+    private final long fullMask;
+
+    /** Every k-in-a-row line.  A player that owns every space of any of these masks has won */
+    private final long[] winningLines;
+    /** linesThroughCell[cell] holds the winning lines that include that space */
+    private final long[][] linesThroughCell;
+
+    /** Space permutations for the rotations and reflections of the board; entry i holds the new bit index of space i */
+    private final int[][] symmetries;
+    /**
+     * symmetricChunks[symmetry][chunk << chunkBits | bits] is the permuted mask of the given bits of one chunk of
+     * spaces, so one side of the board is rotated or reflected with one array read per chunk
+     */
+    private final long[][] symmetricChunks;
+    private final int chunkBits;
+
+    /** One random 64-bit value per (player, space) plus one for "O to move".  The seed is fixed so hashes are stable */
+    private final long[][] zobristSpaceKeys;
+    private final long zobristOToMoveKey;
+
+    /** Shared instances indexed by position number - 1, so hot paths do not allocate a Position per move */
+    private final Position[] positions;
+
+
+    public BoardGeometry(int rows, int cols, int winLength) {
+        if (rows < 1 || cols < 1 || (long) rows * cols > MAX_CELLS) {
+            throw new IllegalArgumentException("Board must have between 1 and " + MAX_CELLS + " spaces, got " + rows + "x" + cols);
+        }
+        if (winLength < 1 || winLength > Math.max(rows, cols)) {
+            throw new IllegalArgumentException("Cannot get " + winLength + " in a row on a " + rows + "x" + cols + " board");
+        }
+
+        this.rows = rows;
+        this.cols = cols;
+        this.winLength = winLength;
+        this.cells = rows * cols;
+        fullMask = cells == Long.SIZE ? -1L : (1L << cells) - 1;
+
+        winningLines = buildWinningLines();
+        linesThroughCell = new long[cells][];
+        for (int cell = 0; cell < cells; cell++) {
+            long bit = 1L << cell;
+            List<Long> lines = new ArrayList<>();
+            for (long line : winningLines) {
+                if ((line & bit) != 0) {
+                    lines.add(line);
+                }
+            }
+            linesThroughCell[cell] = lines.stream().mapToLong(Long::longValue).toArray();
+        }
+
+        symmetries = buildSymmetries();
+        chunkBits = cells <= MAX_SINGLE_CHUNK_BITS ? cells : CHUNK_BITS;
+        symmetricChunks = buildSymmetricChunks();
+
+        SplittableRandom zobristRandom = new SplittableRandom(0x5EED_2048_7AC7_0E5L);
+        zobristSpaceKeys = new long[2][cells];
+        for (long[] playerKeys : zobristSpaceKeys) {
+            for (int cell = 0; cell < cells; cell++) {
+                playerKeys[cell] = zobristRandom.nextLong();
+            }
+        }
+        zobristOToMoveKey = zobristRandom.nextLong();
+
+        positions = new Position[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            positions[cell] = new Position(cell / cols, cell % cols, cols);
+        }
+    }
+
+    /** Parse "m,n,k", e.g. "4,4,3" for three in a row on a 4x4 board */
+    static BoardGeometry parse(String mnk) {
+        String[] parts = mnk.split(",");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Board must be given as rows,cols,k, got " + mnk);
+        }
+        return new BoardGeometry(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()), Integer.parseInt(parts[2].trim()));
+    }
+
+
+    public int getRows() { return rows; }
+    public int getCols() { return cols; }
+    /** Number of marks in a row needed to win */
+    public int getWinLength() { return winLength; }
+    public int getCells() { return cells; }
+
+    long getFullMask() {
+        return fullMask;
+    }
+
+    /** Whether {@link Board#getKey()} is an exact encoding that {@link Board#fromKey(BoardGeometry, long)} can unpack */
+    boolean hasExactKeys() {
+        return cells <= MAX_EXACT_KEY_CELLS;
+    }
+
+    /** Return the position with the given number, 1 .. cells, row-by-row from the upper-left */
+    Position getPosition(int positionNumber) {
+        if (positionNumber >= 1 && positionNumber <= cells) {
+            return positions[positionNumber - 1];
+        }
+        // Off the board: still a Position, so callers can report it, but any board will reject it
+        return new Position(Math.floorDiv(positionNumber - 1, cols), Math.floorMod(positionNumber - 1, cols), cols);
+    }
+
+    /** Return the position of the lowest space set in a non-empty space mask */
+    Position getLowestPosition(long mask) {
+        return positions[Long.numberOfTrailingZeros(mask)];
+    }
+
+    /** Return the space index of a position, or -1 if it is not on this board */
+    int toCell(Position pos) {
+        int row = pos.getRow();
+        int col = pos.getCol();
+        return row >= 0 && row < rows && col >= 0 && col < cols ? row * cols + col : -1;
+    }
+
+    /** Return every winning line, as space masks */
+    long[] getWinningLines() {
+        return winningLines.clone();
+    }
+
+    /** Number of winning lines that pass through the space */
+    int getLineCount(int cell) {
+        return linesThroughCell[cell].length;
+    }
+
+    boolean hasWinningLine(long mask) {
+        for (long line : winningLines) {
+            if ((mask & line) == line) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Whether mask, which includes the space just played, wins through that space.  Only its own lines are checked */
+    boolean completesLine(long mask, int cell) {
+        for (long line : linesThroughCell[cell]) {
+            if ((mask & line) == line) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    int getSymmetryCount() {
+        return symmetries.length;
+    }
+
+    /** Return the space mask after applying one of the symmetries.  Symmetry 0 is the identity */
+    long applySymmetry(long mask, int symmetry) {
+        long[] chunks = symmetricChunks[symmetry];
+        int chunkMask = (1 << chunkBits) - 1;
+
+        long permuted = 0;
+        for (int chunk = 0, shift = 0; shift < cells; chunk++, shift += chunkBits) {
+            permuted |= chunks[(chunk << chunkBits) | (int) (mask >>> shift) & chunkMask];
+        }
+        return permuted;
+    }
+
+    /** Return {@link Board#getKey()} of a board */
+    long key(long xMask, long oMask, boolean oToMove) {
+        if (hasExactKeys()) {
+            return xMask | (oMask << cells) | (oToMove ? 1L << (2 * cells) : 0);
+        }
+        return zobristHash(xMask, oMask, oToMove);
+    }
+
+    /** X's spaces of an exact {@link #key} */
+    long keyXMask(long key) {
+        return key & fullMask;
+    }
+
+    /** O's spaces of an exact {@link #key} */
+    long keyOMask(long key) {
+        return (key >>> cells) & fullMask;
+    }
+
+    /** Whether O is to move in an exact {@link #key} */
+    boolean keyOToMove(long key) {
+        return (key >>> (2 * cells)) != 0;
+    }
+
+    /** Return the smallest key among the board's rotations and reflections */
+    long canonicalKey(long xMask, long oMask, boolean oToMove) {
+        long canonical = Long.MAX_VALUE;
+        if (!hasExactKeys()) {
+            for (int symmetry = 0; symmetry < symmetries.length; symmetry++) {
+                canonical = Math.min(canonical, zobristHash(applySymmetry(xMask, symmetry), applySymmetry(oMask, symmetry), oToMove));
+            }
+            return canonical;
+        }
+
+        // The player-to-move bit is above every space bit and the same for every symmetry, so it is added after the min
+        if (chunkBits == cells) {
+            // Small boards: one array read per side per symmetry
+            for (long[] chunks : symmetricChunks) {
+                canonical = Math.min(canonical, chunks[(int) xMask] | (chunks[(int) oMask] << cells));
+            }
+        } else {
+            for (int symmetry = 0; symmetry < symmetries.length; symmetry++) {
+                canonical = Math.min(canonical, applySymmetry(xMask, symmetry) | (applySymmetry(oMask, symmetry) << cells));
+            }
+        }
+        return oToMove ? canonical | 1L << (2 * cells) : canonical;
+    }
+
+    long zobristHash(long xMask, long oMask, boolean oToMove) {
+        long hash = oToMove ? zobristOToMoveKey : 0;
+        for (long mask = xMask; mask != 0; mask &= mask - 1) {
+            hash ^= zobristSpaceKeys[0][Long.numberOfTrailingZeros(mask)];
+        }
+        for (long mask = oMask; mask != 0; mask &= mask - 1) {
+            hash ^= zobristSpaceKeys[1][Long.numberOfTrailingZeros(mask)];
+        }
+        return hash;
+    }
+
+    /** Zobrist key of a mark by the given player (X or O) on the space */
+    long zobristSpaceKey(Player player, int cell) {
+        return zobristSpaceKeys[player == Player.O ? 1 : 0][cell];
+    }
+
+    long zobristOToMoveKey() {
+        return zobristOToMoveKey;
+    }
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BoardGeometry geometry = (BoardGeometry) o;
+        return rows == geometry.rows && cols == geometry.cols && winLength == geometry.winLength;
+    }
+
+    @Override
+    public int hashCode() {
+        return (rows * 31 + cols) * 31 + winLength;
+    }
+
+    @Override
+    public String toString() {
+        return rows + "," + cols + "," + winLength;
+    }
+
+
+    private long[] buildWinningLines() {
+        // Right, down, down-right and down-left from each starting space
+        int[][] directions = { { 0, 1 }, { 1, 0 }, { 1, 1 }, { 1, -1 } };
+        List<Long> lines = new ArrayList<>();
+
+        for (int[] direction : directions) {
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < cols; col++) {
+                    int endRow = row + direction[0] * (winLength - 1);
+                    int endCol = col + direction[1] * (winLength - 1);
+                    if (endRow >= rows || endCol < 0 || endCol >= cols) {
+                        continue;
+                    }
+
+                    long line = 0;
+                    for (int i = 0; i < winLength; i++) {
+                        line |= 1L << ((row + direction[0] * i) * cols + col + direction[1] * i);
+                    }
+                    if (!lines.contains(line)) { // With k = 1 every direction gives the same single-space lines
+                        lines.add(line);
+                    }
+                }
+            }
+        }
+
+        return lines.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * The symmetries of the board as space permutations, identity first.  A square board has eight: four rotations,
+     * each optionally reflected.  Other rectangles only map onto themselves by half turns and reflections, so have four.
+     */
+    private int[][] buildSymmetries() {
+        List<int[]> permutations = new ArrayList<>();
+        permutations.add(buildPermutation((row, col) -> row * cols + col));
+        permutations.add(buildPermutation((row, col) -> row * cols + (cols - 1 - col)));
+        permutations.add(buildPermutation((row, col) -> (rows - 1 - row) * cols + col));
+        permutations.add(buildPermutation((row, col) -> (rows - 1 - row) * cols + (cols - 1 - col)));
+        if (rows == cols) {
+            permutations.add(buildPermutation((row, col) -> col * cols + row));
+            permutations.add(buildPermutation((row, col) -> col * cols + (rows - 1 - row)));
+            permutations.add(buildPermutation((row, col) -> (cols - 1 - col) * cols + row));
+            permutations.add(buildPermutation((row, col) -> (cols - 1 - col) * cols + (rows - 1 - row)));
+        }
+        return permutations.toArray(new int[0][]);
+    }
+
+    private long[][] buildSymmetricChunks() {
+        int chunkCount = (cells + chunkBits - 1) / chunkBits;
+        long[][] chunks = new long[symmetries.length][chunkCount << chunkBits];
+
+        for (int symmetry = 0; symmetry < symmetries.length; symmetry++) {
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                for (int bits = 0; bits < 1 << chunkBits; bits++) {
+                    long permuted = 0;
+                    for (int i = 0; i < chunkBits; i++) {
+                        int cell = chunk * chunkBits + i;
+                        if ((bits & (1 << i)) != 0 && cell < cells) {
+                            permuted |= 1L << symmetries[symmetry][cell];
+                        }
+                    }
+                    chunks[symmetry][(chunk << chunkBits) | bits] = permuted;
+                }
+            }
+        }
+        return chunks;
+    }
+
+    private interface SpaceMapping {
+        int map(int row, int col);
+    }
+
+    private int[] buildPermutation(SpaceMapping mapping) {
+        int[] permutation = new int[cells];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                permutation[row * cols + col] = mapping.map(row, col);
+            }
+        }
+        return permutation;
+    }
+}
\ No newline at end of file
@@ -1,18 +1,48 @@
 package com.github.davenedde.gameengine;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.Closeable;
+import java.io.IOException;
 
 /**
  * Maintains a map of board + player whose turn it is (current player that has not yet moved) to reward.
+ * <p>
+ * Rotated and reflected boards have the same value for the current player, so each value is stored once
+ * under the board's {@link Board#getCanonicalKey() canonical key} and every lookup is canonicalized the same way.
  */
-class BoardRewards {
+class BoardRewards implements Closeable {
+    /** Reward for a board that has not been seen yet */
+    static final double DEFAULT_REWARD = 0.5;
+
+    /** Shape of the boards whose keys are stored */
+    private final BoardGeometry geometry;
+
     /** Reward always matches the player whose turn it is */
-    private final Map<Board,Double> boardPlayerTurnToValueMap = new HashMap<>();
+    private final RewardStore boardPlayerTurnToValueMap;
+
+
+    public BoardRewards() {
+        this(new RewardTable());
+    }
 
-    /** Map a board to equivalent boards (reflected and rotated) that would have the same value for the current player */
-    private final Map<Board,List<Board>> boardToEquivilentBoardsMap = new HashMap<>();
+    /** Use a specific store, e.g. a {@link ConcurrentRewardTable} shared by parallel training workers */
+    public BoardRewards(RewardStore rewardStore) {
+        this(BoardGeometry.STANDARD, rewardStore);
+    }
+
+    /** Rewards for boards of another shape */
+    public BoardRewards(BoardGeometry geometry) {
+        this(geometry, new RewardTable());
+    }
+
+    public BoardRewards(BoardGeometry geometry, RewardStore rewardStore) {
+        this.geometry = geometry;
+        this.boardPlayerTurnToValueMap = rewardStore;
+    }
+
+
+    public BoardGeometry getGeometry() {
+        return geometry;
+    }
 
 
     public void clear() {
@@ -21,7 +51,17 @@ class BoardRewards {
 
     /** Return the reward for the currentPlayer (about to play a move) of the specified board */
     public double getRewardCurrentPlayer(Board board) {
-        return boardPlayerTurnToValueMap.computeIfAbsent(board, key -> 0.5);
+        return getRewardCurrentPlayer(board.getCanonicalKey());
+    }
+
+    /** Same as {@link #getRewardCurrentPlayer(Board)} for a board already reduced to its canonical key */
+    double getRewardCurrentPlayer(long canonicalKey) {
+        return boardPlayerTurnToValueMap.computeIfAbsent(canonicalKey, DEFAULT_REWARD);
+    }
+
+    /** Same as {@link #getRewardCurrentPlayer(long)}, but an unseen board is not stored, so reads leave the rewards unchanged */
+    double peekRewardCurrentPlayer(long canonicalKey) {
+        return boardPlayerTurnToValueMap.getOrDefault(canonicalKey, DEFAULT_REWARD);
     }
 
     /** Return the reward for the non-currentPlayer (just played a move) of the specified board */
@@ -29,17 +69,51 @@ class BoardRewards {
         return 1.0 - getRewardCurrentPlayer(board);
     }
 
-    /** Store reward for player who is about to play a move.  Also store reward for the same board in other orientations */
+    /** Store reward for player who is about to play a move.  The value is shared by the board in all other orientations */
     public void setRewardCurrentPlayer(Board board, double value) {
-        boardPlayerTurnToValueMap.put(board, value);
+        boardPlayerTurnToValueMap.put(board.getCanonicalKey(), value);
+    }
+
+    /** Same as {@link #setRewardCurrentPlayer(Board, double)} for a board already reduced to its canonical key */
+    void setRewardCurrentPlayer(long canonicalKey, double value) {
+        boardPlayerTurnToValueMap.put(canonicalKey, value);
+    }
+
+    /** Move the reward for the player who is about to play a move the given fraction of the way toward target */
+    public void backUpRewardCurrentPlayer(Board board, double target, double rate) {
+        backUpRewardCurrentPlayer(board.getCanonicalKey(), target, rate);
+    }
 
-        List<Board> equivalentBoards = boardToEquivilentBoardsMap.get(board);
-        if (equivalentBoards == null) {
-            equivalentBoards = board.getEquivalentBoards();
-            boardToEquivilentBoardsMap.put(board, equivalentBoards);
+    /** Same as {@link #backUpRewardCurrentPlayer(Board, double, double)} for a board already reduced to its canonical key */
+    void backUpRewardCurrentPlayer(long canonicalKey, double target, double rate) {
+        boardPlayerTurnToValueMap.moveToward(canonicalKey, target, rate, DEFAULT_REWARD);
+    }
+
+    /** Return the reward for the player about to move on a finished board: 1 win, 0.5 tie, 0 loss */
+    static double getTerminalRewardCurrentPlayer(Board board, Player winner) {
+        if (winner.equals(Player.TIE)) {
+            return 0.5;
+        } else if (winner.equals(board.getCurrentPlayer())) {
+            return 1.0;
+        } else if (winner.equals(board.getOtherPlayer())) {
+            return 0.0;
+        } else {
+            throw new RuntimeException();
         }
+    }
+
+    public int size() {
+        return boardPlayerTurnToValueMap.size();
+    }
+
+    /** Pass every stored canonical board key and its reward for the current player to the consumer */
+    void forEachReward(RewardStore.EntryConsumer consumer) {
+        boardPlayerTurnToValueMap.forEach(consumer);
+    }
 
-        equivalentBoards.forEach( // Store values for equivalent boards to speed training
-            equivilentBoard -> boardPlayerTurnToValueMap.put(equivilentBoard, value));
+    /** Release the store, e.g. the scratch file of a {@link MappedRewardStore}.  The rewards cannot be used afterwards */
+    @Override
+    public void close() throws IOException {
+        boardPlayerTurnToValueMap.close();
     }
 }
\ No newline at end of file
@@ -0,0 +1,183 @@
+package com.github.davenedde.gameengine;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free open-addressing reward table that many training workers can read and update at once.
+ * <p>
+ * Keys are claimed with a compare-and-set on an empty slot and are never removed while training runs.
+ * Values are the bits of a double, updated with compare-and-set loops so concurrent backups are not lost.
+ * A stored value of 0 means "no value yet", so each value is kept bit-inverted: ~bits is never 0 for a real reward.
+ * <p>
+ * The capacity is fixed when the table is created because a lock-free table cannot be resized in place.  It is at
+ * least twice the expected size, and storing more boards than half the capacity fails fast rather than letting
+ * linear probe chains grow until the table is completely full.
+ */
+class ConcurrentRewardTable implements RewardStore {
+    /** Key used to mark an empty slot.  A real entry with this key is kept in freeKeyValue */
+    private static final long FREE_KEY = 0L;
+    private static final long NO_VALUE = 0L;
+    /** Entries per slot the table accepts before refusing new keys */
+    private static final double MAX_LOAD_FACTOR = 0.5;
+
+    private final AtomicLongArray keys;
+    private final AtomicLongArray values;
+    private final AtomicLong freeKeyValue = new AtomicLong(NO_VALUE);
+    private final AtomicInteger size = new AtomicInteger();
+    private final int mask;
+    private final int maxSize;
+
+
+    /** Create a table that holds at least expectedSize entries within its load factor */
+    public ConcurrentRewardTable(int expectedSize) {
+        int capacity = RewardTable.tableSizeFor(expectedSize);
+        keys = new AtomicLongArray(capacity);
+        values = new AtomicLongArray(capacity);
+        mask = capacity - 1;
+        maxSize = (int) (capacity * MAX_LOAD_FACTOR);
+    }
+
+
+    @Override
+    public int size() {
+        return size.get() + (freeKeyValue.get() != NO_VALUE ? 1 : 0);
+    }
+
+    /** Most keys the table stores, not counting the free key, before {@link #put} and friends throw */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /** Remove all entries.  Must not be called while other threads are using the table */
+    @Override
+    public void clear() {
+        for (int slot = 0; slot < keys.length(); slot++) {
+            keys.set(slot, FREE_KEY);
+            values.set(slot, NO_VALUE);
+        }
+        freeKeyValue.set(NO_VALUE);
+        size.set(0);
+    }
+
+    @Override
+    public double getOrDefault(long key, double defaultValue) {
+        long stored;
+        if (key == FREE_KEY) {
+            stored = freeKeyValue.get();
+        } else {
+            int slot = findSlot(key);
+            stored = slot < 0 ? NO_VALUE : values.get(slot);
+        }
+        return stored != NO_VALUE ? decode(stored) : defaultValue;
+    }
+
+    @Override
+    public double computeIfAbsent(long key, double defaultValue) {
+        AtomicLongArray valueArray = key == FREE_KEY ? null : values;
+        int slot = key == FREE_KEY ? 0 : claimSlot(key);
+
+        long stored = get(valueArray, slot);
+        if (stored == NO_VALUE && !compareAndSet(valueArray, slot, NO_VALUE, encode(defaultValue))) {
+            stored = get(valueArray, slot); // Another thread stored a value first
+        }
+        return stored != NO_VALUE ? decode(stored) : defaultValue;
+    }
+
+    @Override
+    public void put(long key, double value) {
+        if (key == FREE_KEY) {
+            freeKeyValue.set(encode(value));
+        } else {
+            values.set(claimSlot(key), encode(value));
+        }
+    }
+
+    @Override
+    public void moveToward(long key, double target, double rate, double defaultValue) {
+        AtomicLongArray valueArray = key == FREE_KEY ? null : values;
+        int slot = key == FREE_KEY ? 0 : claimSlot(key);
+
+        while (true) {
+            long stored = get(valueArray, slot);
+            double current = stored != NO_VALUE ? decode(stored) : defaultValue;
+            if (compareAndSet(valueArray, slot, stored, encode(current + rate * (target - current)))) {
+                return;
+            }
+        }
+    }
+
+    /** Entries being stored by other threads while this runs may or may not be included */
+    @Override
+    public void forEach(EntryConsumer consumer) {
+        long stored = freeKeyValue.get();
+        if (stored != NO_VALUE) {
+            consumer.accept(FREE_KEY, decode(stored));
+        }
+        for (int slot = 0; slot < keys.length(); slot++) {
+            long key = keys.get(slot);
+            stored = values.get(slot);
+            if (key != FREE_KEY && stored != NO_VALUE) {
+                consumer.accept(key, decode(stored));
+            }
+        }
+    }
+
+
+    /** Return the slot holding the key, or -1 if the key is not in the table */
+    private int findSlot(long key) {
+        int slot = RewardTable.hash(key) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            long slotKey = keys.get(slot);
+            if (slotKey == key) {
+                return slot;
+            } else if (slotKey == FREE_KEY) {
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /** Return the slot holding the key, claiming an empty slot for it if the key is new */
+    private int claimSlot(long key) {
+        int slot = RewardTable.hash(key) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            long slotKey = keys.get(slot);
+            if (slotKey == key) {
+                return slot;
+            } else if (slotKey == FREE_KEY) {
+                if (keys.compareAndSet(slot, FREE_KEY, key)) {
+                    if (size.incrementAndGet() > maxSize) {
+                        throw new IllegalStateException("Concurrent reward table is past its load factor at " + maxSize
+                            + " of " + keys.length() + " slots; create it with a larger expected size");
+                    }
+                    return slot;
+                } else if (keys.get(slot) == key) {
+                    return slot; // Another thread claimed this slot for the same key
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+        throw new IllegalStateException("Concurrent reward table is full at " + keys.length() + " entries");
+    }
+
+    private long get(AtomicLongArray valueArray, int slot) {
+        return valueArray != null ? valueArray.get(slot) : freeKeyValue.get();
+    }
+
+    private boolean compareAndSet(AtomicLongArray valueArray, int slot, long expected, long newValue) {
+        return valueArray != null
+            ? valueArray.compareAndSet(slot, expected, newValue)
+            : freeKeyValue.compareAndSet(expected, newValue);
+    }
+
+    private static long encode(double value) {
+        return ~Double.doubleToRawLongBits(value);
+    }
+
+    private static double decode(long stored) {
+        return Double.longBitsToDouble(~stored);
+    }
+}
\ No newline at end of file
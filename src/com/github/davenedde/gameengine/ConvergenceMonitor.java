@@ -0,0 +1,175 @@
+package com.github.davenedde.gameengine;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Decides when training has stopped making progress.
+ * <p>
+ * At the end of each training window the monitor reads the reward and the greedy move of a fixed set of probe
+ * boards.  Training has converged once, for {@link #DEFAULT_PATIENCE} windows in a row, no probe value moved by more
+ * than the tolerance and no greedy move changed.  When a reference solver is given, the monitor also scores the
+ * policy: the fraction of probe boards whose greedy move is optimal.
+ * <p>
+ * The standard board is small enough to probe every reachable board against an exact solver.  Larger boards are
+ * probed on their openings only, without a reference.
+ */
+class ConvergenceMonitor {
+    static final double DEFAULT_VALUE_TOLERANCE = 0.01;
+    static final int DEFAULT_PATIENCE = 3;
+    /** Boards up to this many moves from the start are probed on boards other than the standard one */
+    static final int OPENING_PLIES = 2;
+
+    private final Board[] probes;
+    /** Bit (position number - 1) set for each optimal move of each probe, or null without a reference */
+    private final long[] optimalMoveMasks;
+    private final double valueTolerance;
+    private final int patience;
+
+    private final double[] lastValues;
+    private final int[] lastGreedyMoves;
+    private boolean hasLastWindow;
+
+    private int stableWindows;
+    private double maxValueChange = Double.NaN;
+    private int greedyMoveFlips;
+    private double policyQuality = Double.NaN;
+
+
+    public ConvergenceMonitor(List<Board> probes, NegamaxSolver reference, double valueTolerance, int patience) {
+        this.probes = probes.toArray(new Board[0]);
+        this.valueTolerance = valueTolerance;
+        this.patience = patience;
+        lastValues = new double[this.probes.length];
+        lastGreedyMoves = new int[this.probes.length];
+
+        if (reference != null) {
+            optimalMoveMasks = new long[this.probes.length];
+            for (int i = 0; i < this.probes.length; i++) {
+                for (Position move : this.probes[i].getEmptyPositions()) {
+                    if (reference.isOptimalMove(this.probes[i], move)) {
+                        optimalMoveMasks[i] |= 1L << (move.toPositionNumber() - 1);
+                    }
+                }
+            }
+        } else {
+            optimalMoveMasks = null;
+        }
+    }
+
+    /** Probe every unfinished standard board reachable from either starting player, scored against an exact solver */
+    public static ConvergenceMonitor forAllBoards() {
+        return new ConvergenceMonitor(reachableUnfinishedBoards(BoardGeometry.STANDARD, BoardGeometry.STANDARD.getCells()),
+            new NegamaxSolver(), DEFAULT_VALUE_TOLERANCE, DEFAULT_PATIENCE);
+    }
+
+    /** {@link #forAllBoards()} for the standard board, otherwise probe the openings of the given board shape */
+    public static ConvergenceMonitor forGeometry(BoardGeometry geometry) {
+        if (geometry.equals(BoardGeometry.STANDARD)) {
+            return forAllBoards();
+        }
+        return new ConvergenceMonitor(reachableUnfinishedBoards(geometry, OPENING_PLIES), null, DEFAULT_VALUE_TOLERANCE, DEFAULT_PATIENCE);
+    }
+
+
+    /**
+     * Compare the current rewards with those at the end of the previous window.
+     *
+     * @return true once the rewards and greedy moves have been stable for enough windows to stop training
+     */
+    public boolean update(BoardRewards boardRewards) {
+        double windowMaxChange = 0;
+        int windowFlips = 0;
+        int optimalMoves = 0;
+
+        for (int i = 0; i < probes.length; i++) {
+            Board probe = probes[i];
+            double value = boardRewards.peekRewardCurrentPlayer(probe.getCanonicalKey());
+            int greedyMove = getGreedyMove(boardRewards, probe);
+
+            if (hasLastWindow) {
+                windowMaxChange = Math.max(windowMaxChange, Math.abs(value - lastValues[i]));
+                if (greedyMove != lastGreedyMoves[i]) {
+                    windowFlips++;
+                }
+            }
+            if (optimalMoveMasks != null && (optimalMoveMasks[i] & (1L << (greedyMove - 1))) != 0) {
+                optimalMoves++;
+            }
+
+            lastValues[i] = value;
+            lastGreedyMoves[i] = greedyMove;
+        }
+
+        if (hasLastWindow) {
+            maxValueChange = windowMaxChange;
+            greedyMoveFlips = windowFlips;
+            stableWindows = windowMaxChange < valueTolerance && windowFlips == 0 ? stableWindows + 1 : 0;
+        }
+        hasLastWindow = true;
+        policyQuality = optimalMoveMasks != null ? (double) optimalMoves / probes.length : Double.NaN;
+
+        return stableWindows >= patience;
+    }
+
+    /** Number of consecutive stable windows so far */
+    public int getStableWindows() {
+        return stableWindows;
+    }
+
+    /** Largest probe value change in the last window, NaN before the second window */
+    public double getMaxValueChange() {
+        return maxValueChange;
+    }
+
+    /** Number of probes whose greedy move changed in the last window */
+    public int getGreedyMoveFlips() {
+        return greedyMoveFlips;
+    }
+
+    /** Fraction of probes whose greedy move is optimal according to the reference, NaN without a reference */
+    public double getPolicyQuality() {
+        return policyQuality;
+    }
+
+
+    /** Position number of the highest value move, reading rewards without storing defaults */
+    private static int getGreedyMove(BoardRewards boardRewards, Board board) {
+        int bestMove = 0;
+        double maxValue = -Double.MAX_VALUE;
+        for (Position move : board.getEmptyPositions()) {
+            double moveValue = 1.0 - boardRewards.peekRewardCurrentPlayer(board.getCanonicalKeyAfterMove(move));
+            if (moveValue > maxValue) {
+                maxValue = moveValue;
+                bestMove = move.toPositionNumber();
+            }
+        }
+        return bestMove;
+    }
+
+    /** Unfinished boards, one per canonical key, at most maxPlies moves from either starting player */
+    static List<Board> reachableUnfinishedBoards(BoardGeometry geometry, int maxPlies) {
+        Set<Long> visited = new HashSet<>();
+        List<Board> boards = new ArrayList<>();
+        List<Board> pending = new ArrayList<>(List.of(new Board(geometry, Player.X), new Board(geometry, Player.O)));
+
+        // Breadth first, one ply at a time
+        for (int ply = 0; ply <= maxPlies && !pending.isEmpty(); ply++) {
+            List<Board> next = new ArrayList<>();
+            for (Board board : pending) {
+                if (board.getWinner().isPresent() || !visited.add(board.getCanonicalKey())) {
+                    continue;
+                }
+                boards.add(board);
+                for (Position position : board.getEmptyPositions()) {
+                    next.add(board.playMove(position));
+                }
+            }
+            pending = next;
+        }
+
+        return boards;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.github.davenedde.gameengine;
+
+import java.util.random.RandomGenerator;
+
+/** With probability epsilon play a uniformly random empty space, otherwise the greedy move.  Epsilon decays each game */
+class EpsilonGreedyExploration implements ExplorationStrategy {
+    private final double startingRate;
+    private final double decayRate;
+    private double rate;
+
+
+    public EpsilonGreedyExploration(double startingRate, double decayRate) {
+        this.startingRate = startingRate;
+        this.decayRate = decayRate;
+        this.rate = startingRate;
+    }
+
+
+    @Override
+    public void reset() {
+        rate = startingRate;
+    }
+
+    @Override
+    public void endGame() {
+        rate *= decayRate;
+    }
+
+    @Override
+    public double getRate() {
+        return rate;
+    }
+
+    @Override
+    public long explore(long emptyMask, MoveValues moveValues, RandomGenerator random) {
+        if (random.nextDouble() >= rate) {
+            return 0;
+        }
+
+        // Skip a random number of the empty spaces
+        for (int skip = random.nextInt(Long.bitCount(emptyMask)); skip > 0; skip--) {
+            emptyMask &= emptyMask - 1;
+        }
+        return Long.lowestOneBit(emptyMask);
+    }
+}
\ No newline at end of file
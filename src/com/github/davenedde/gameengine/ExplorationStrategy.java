@@ -0,0 +1,34 @@
+package com.github.davenedde.gameengine;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * How {@link TrainingEngine} and {@link NTupleTrainingEngine} pick exploratory moves.
+ * <p>
+ * A strategy belongs to one engine and is only called from its training thread, so it may keep preallocated scratch
+ * space and a decaying schedule.  The engine decides when a player is still allowed to explore; the strategy decides
+ * the move.  Moves are single bits of the board's masks and values come from the engine, so one strategy works for a
+ * reward table and a value network alike.
+ */
+interface ExplorationStrategy {
+    /** The engine's current value of each move for the player about to move, without allocating */
+    interface MoveValues {
+        /** Value for the player to move of taking the space bit, from 0 (loss) to 1 (win) */
+        double getMoveValue(long bit);
+    }
+
+    /** Restart the schedule at the beginning of training */
+    void reset();
+
+    /** Advance the schedule after each training game */
+    void endGame();
+
+    /** Current schedule value for logging, e.g. the exploratory rate or temperature */
+    double getRate();
+
+    /**
+     * Return the bit of an exploratory move among the empty spaces of an unfinished board,
+     * or 0 to play the greedy move instead.
+     */
+    long explore(long emptyMask, MoveValues moveValues, RandomGenerator random);
+}
\ No newline at end of file
@@ -0,0 +1,194 @@
+package com.github.davenedde.gameengine;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+/**
+ * Load generator for {@link GameServer}: many concurrent sessions, each playing random moves against the server.
+ * <p>
+ * Like the server, all sessions are driven by one non-blocking selector thread.  Every session keeps exactly one
+ * request in flight and the round trip of each one is recorded, so the reported p50/p99 are the latency a client
+ * sees for a move under that many concurrent games.
+ */
+class GameLoadClient {
+    private static final int MAX_LINE_LENGTH = 64;
+
+    private final int port;
+    private final int sessionCount;
+    private final int gamesPerSession;
+    private final SplittableRandom random = new SplittableRandom();
+
+    private final LatencyHistogram roundTrips = new LatencyHistogram();
+    private long clientWins;
+    private long clientLosses;
+    private long draws;
+    private long errors;
+
+
+    /** One connection and the game it is playing */
+    private static class Session {
+        final SocketChannel channel;
+        SelectionKey key;
+        final ByteBuffer in = ByteBuffer.allocate(MAX_LINE_LENGTH);
+        /** Request being sent, with any bytes the socket has not yet accepted */
+        ByteBuffer out;
+        Board board;
+        Player clientPlayer;
+        int gamesLeft;
+        long sentNanos;
+
+        Session(SocketChannel channel, int gamesLeft) {
+            this.channel = channel;
+            this.gamesLeft = gamesLeft;
+        }
+    }
+
+
+    public GameLoadClient(int port, int sessionCount, int gamesPerSession) {
+        this.port = port;
+        this.sessionCount = sessionCount;
+        this.gamesPerSession = gamesPerSession;
+    }
+
+
+    /** Play every game and print the outcome counts and round-trip latency */
+    public void run() throws IOException {
+        long startNanos = System.nanoTime();
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < sessionCount; i++) {
+                SocketChannel channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.connect(address);
+                Session session = new Session(channel, gamesPerSession);
+                session.key = channel.register(selector, SelectionKey.OP_CONNECT, session);
+            }
+
+            int openSessions = sessionCount;
+            while (openSessions > 0) {
+                selector.select();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Session session = (Session) key.attachment();
+
+                    if (key.isConnectable()) {
+                        session.channel.finishConnect();
+                        startGame(session);
+                    } else if (key.isWritable()) {
+                        flush(session);
+                    } else if (key.isReadable() && !readResponses(session)) {
+                        key.cancel();
+                        session.channel.close();
+                        openSessions--;
+                    }
+                }
+            }
+        }
+
+        long games = clientWins + clientLosses + draws;
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf("%d sessions played %d games in %.2f s, %.0f requests/s%n",
+            sessionCount, games, seconds, roundTrips.getCount() / seconds);
+        System.out.printf("Client wins %d, losses %d, draws %d, errors %d%n", clientWins, clientLosses, draws, errors);
+        System.out.printf("Round trip p50 %.1f us, p99 %.1f us%n",
+            roundTrips.getPercentile(50) / 1e3, roundTrips.getPercentile(99) / 1e3);
+    }
+
+
+    /** Handle every complete response line; return false once the session has no more games to play */
+    private boolean readResponses(Session session) throws IOException {
+        if (session.channel.read(session.in) < 0) {
+            return false;
+        }
+
+        session.in.flip();
+        int lineStart = 0;
+        boolean open = true;
+        for (int i = 0; i < session.in.limit() && open; i++) {
+            if (session.in.get(i) == '\n') {
+                roundTrips.record(System.nanoTime() - session.sentNanos);
+                String line = new String(session.in.array(), lineStart, i - lineStart, StandardCharsets.US_ASCII).trim();
+                open = handleResponse(session, line);
+                lineStart = i + 1;
+            }
+        }
+        session.in.position(lineStart);
+        session.in.compact();
+        return open;
+    }
+
+    private boolean handleResponse(Session session, String line) throws IOException {
+        String[] words = line.split(" ");
+        int word = 0;
+
+        if (words[word].equals("MOVE")) {
+            session.board = session.board.playMove(Position.fromString(words[word + 1]));
+            word += 2;
+        } else if (words[word].equals("READY")) {
+            word++;
+        } else if (!words[word].equals("WINNER")) {
+            errors++;
+            return false;
+        }
+
+        if (word < words.length && words[word].equals("WINNER")) {
+            Player winner = Player.valueOf(words[word + 1]);
+            if (winner.equals(Player.TIE)) {
+                draws++;
+            } else if (winner.equals(session.clientPlayer)) {
+                clientWins++;
+            } else {
+                clientLosses++;
+            }
+
+            if (--session.gamesLeft == 0) {
+                return false;
+            }
+            startGame(session);
+            return true;
+        }
+
+        // Client's turn: a random empty space
+        long emptyMask = session.board.getEmptyMask();
+        for (int skip = random.nextInt(Long.bitCount(emptyMask)); skip > 0; skip--) {
+            emptyMask &= emptyMask - 1;
+        }
+        Position move = session.board.getGeometry().getLowestPosition(emptyMask);
+        session.board = session.board.playMove(move);
+        send(session, move.toString());
+        return true;
+    }
+
+    /** Alternate sides from game to game */
+    private void startGame(Session session) throws IOException {
+        session.clientPlayer = session.gamesLeft % 2 == 0 ? Player.X : Player.O;
+        session.board = new Board(Player.X);
+        send(session, session.clientPlayer.toString());
+    }
+
+    private void send(Session session, String request) throws IOException {
+        session.out = ByteBuffer.wrap((request + "\n").getBytes(StandardCharsets.US_ASCII));
+        session.sentNanos = System.nanoTime();
+        flush(session);
+    }
+
+    /** Write as much of the request as the socket takes, and wait to be writable again for the rest */
+    private void flush(Session session) throws IOException {
+        session.channel.write(session.out);
+        session.key.interestOps(session.out.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,159 @@
+package com.github.davenedde.gameengine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongConsumer;
+
+/**
+ * Compact record of played games, for saving millions of games and analysing them later.
+ * <p>
+ * A whole game packs into one long:
+ * <pre>
+ *   bits  0..35  position number of each move, one 4-bit nibble per ply, first move lowest
+ *   bits 36..39  number of moves
+ *   bits 40..41  winner: 0 X, 1 O, 2 tie
+ *   bit  42      set when O moved first
+ * </pre>
+ * A log file is a header (big-endian int magic "TTTG", format version, board rows and columns) followed by one record
+ * per game.  {@link Writer} streams records to disk through a FileChannel in large blocks, and
+ * {@link #forEach(Path, LongConsumer)} reads them back through memory mappings, so aggregating a log runs at disk speed.
+ */
+class GameLog {
+    private static final int MAGIC = 0x54545447; // "TTTG"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 4;
+
+    private static final int MOVE_BITS = 4;
+    private static final int LENGTH_SHIFT = Board.CELLS * MOVE_BITS;
+    private static final int WINNER_SHIFT = LENGTH_SHIFT + 4;
+    private static final long O_STARTED = 1L << (WINNER_SHIFT + 2);
+
+    private static final Player[] WINNERS = { Player.X, Player.O, Player.TIE };
+
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+    /** Largest part of a log mapped at once; a whole number of records */
+    private static final long MAP_CHUNK_BYTES = 1L << 30;
+
+
+    private GameLog() {
+    }
+
+
+    /** Pack a finished game; moves[ply] is the position number played at each ply */
+    static long pack(Player startingPlayer, byte[] moves, int length, Player winner) {
+        long record = 0;
+        for (int ply = 0; ply < length; ply++) {
+            record |= (long) moves[ply] << (ply * MOVE_BITS);
+        }
+        record |= (long) length << LENGTH_SHIFT;
+        record |= (long) winner.ordinal() << WINNER_SHIFT;
+        return startingPlayer.equals(Player.O) ? record | O_STARTED : record;
+    }
+
+    static int getLength(long record) {
+        return (int) (record >>> LENGTH_SHIFT) & 0xF;
+    }
+
+    /** Position number played at the given ply */
+    static int getMove(long record, int ply) {
+        return (int) (record >>> (ply * MOVE_BITS)) & 0xF;
+    }
+
+    static Player getWinner(long record) {
+        return WINNERS[(int) (record >>> WINNER_SHIFT) & 0x3];
+    }
+
+    static Player getStartingPlayer(long record) {
+        return (record & O_STARTED) != 0 ? Player.O : Player.X;
+    }
+
+
+    /** Pass every record in the log to the consumer, in the order written */
+    static void forEach(Path path, LongConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, HEADER_BYTES));
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                throw new IOException(path + " is not a game log");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported game log version " + version + " in " + path);
+            }
+            int rows = header.getInt();
+            int cols = header.getInt();
+            if (rows != Board.ROWS || cols != Board.COLS) {
+                throw new IOException("Game log " + path + " is for a " + rows + "x" + cols + " board");
+            }
+            if ((size - HEADER_BYTES) % Long.BYTES != 0) {
+                throw new IOException("Game log " + path + " is truncated or corrupt");
+            }
+
+            for (long position = HEADER_BYTES; position < size; position += MAP_CHUNK_BYTES) {
+                LongBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_CHUNK_BYTES, size - position))
+                    .asLongBuffer();
+                for (int i = 0; i < records.limit(); i++) {
+                    consumer.accept(records.get(i));
+                }
+            }
+        }
+    }
+
+
+    /** Appends packed games to a new log file */
+    static class Writer implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+        private long recordCount;
+
+        public Writer(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            buffer.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(Board.ROWS)
+                .putInt(Board.COLS);
+        }
+
+        /** Buffer one record, writing the block to disk when it fills */
+        public void write(long record) {
+            if (!buffer.hasRemaining()) {
+                writeBuffer();
+            }
+            buffer.putLong(record);
+            recordCount++;
+        }
+
+        public long getRecordCount() {
+            return recordCount;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                writeBuffer();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                channel.close();
+            }
+        }
+
+        private void writeBuffer() {
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            buffer.clear();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.github.davenedde.gameengine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.LongConsumer;
+
+/**
+ * Aggregates a {@link GameLog}: the outcome distribution, game lengths, and for each opening move how often the player
+ * who made it went on to win, draw or lose.  Counting works directly on the packed records and does not allocate.
+ */
+class GameLogStats implements LongConsumer {
+    private static final int WIN = 0;
+    private static final int DRAW = 1;
+    private static final int LOSS = 2;
+
+    private long games;
+    /** Indexed by winner ordinal */
+    private final long[] outcomes = new long[Player.values().length];
+    private final long[] lengths = new long[Board.CELLS + 1];
+    /** [position number - 1][WIN, DRAW, LOSS] for the player who opened */
+    private final long[][] openings = new long[Board.CELLS][3];
+
+
+    /** Aggregate every game in the log */
+    static GameLogStats of(Path path) throws IOException {
+        GameLogStats stats = new GameLogStats();
+        GameLog.forEach(path, stats);
+        return stats;
+    }
+
+
+    @Override
+    public void accept(long record) {
+        games++;
+
+        Player winner = GameLog.getWinner(record);
+        outcomes[winner.ordinal()]++;
+
+        int length = GameLog.getLength(record);
+        lengths[length]++;
+
+        if (length > 0) {
+            Player opener = GameLog.getStartingPlayer(record);
+            int result = winner.equals(Player.TIE) ? DRAW : winner.equals(opener) ? WIN : LOSS;
+            openings[GameLog.getMove(record, 0) - 1][result]++;
+        }
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getOutcomeCount(Player winner) {
+        return outcomes[winner.ordinal()];
+    }
+
+    public void print() {
+        System.out.printf("%d games: X wins %.4f, O wins %.4f, ties %.4f%n", games,
+            rate(outcomes[Player.X.ordinal()]), rate(outcomes[Player.O.ordinal()]), rate(outcomes[Player.TIE.ordinal()]));
+
+        StringBuilder lengthLine = new StringBuilder("Game length:");
+        for (int length = 0; length < lengths.length; length++) {
+            if (lengths[length] > 0) {
+                lengthLine.append(String.format(" %d: %.4f", length, rate(lengths[length])));
+            }
+        }
+        System.out.println(lengthLine);
+
+        System.out.println("Opening\tgames\twin\tdraw\tloss");
+        for (int cell = 0; cell < openings.length; cell++) {
+            long openingGames = openings[cell][WIN] + openings[cell][DRAW] + openings[cell][LOSS];
+            if (openingGames > 0) {
+                System.out.printf("%d\t%d\t%.4f\t%.4f\t%.4f%n", cell + 1, openingGames,
+                    (double) openings[cell][WIN] / openingGames,
+                    (double) openings[cell][DRAW] / openingGames,
+                    (double) openings[cell][LOSS] / openingGames);
+            }
+        }
+    }
+
+
+    private double rate(long count) {
+        return games > 0 ? (double) count / games : 0;
+    }
+}
\ No newline at end of file
@@ -7,15 +7,15 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 class GameRenderer {
-    static void printGame(BoardRewards boardRewards, GameResult result) {
-        Board currentBoard = new Board(Player.O);
+    static void printGame(PolicySnapshot policy, GameResult result) {
+        Board currentBoard = new Board(policy.getGeometry(), Player.O);
 
-        printBoardAndWeights(boardRewards, currentBoard);
+        printBoardAndWeights(policy, currentBoard);
 
         for (Position currentMove : result.getMoves()) {
             currentBoard = currentBoard.playMove(currentMove);
 
-            printBoardAndWeights(boardRewards, currentBoard);
+            printBoardAndWeights(policy, currentBoard);
         }
     }
 
@@ -40,13 +40,13 @@ class GameRenderer {
     }
 
     // print the board when it is the currentPlayer's turn to go along with weights for the various moves for the current player
-    static void printBoardAndWeights(BoardRewards boardRewards, Board board) {
+    static void printBoardAndWeights(PolicySnapshot policy, Board board) {
         System.out.println("---\nStarting com.github.davenedde.gameengine.Board: " + board);
 
         board.getEmptyPositions().stream()
             .map(pos -> {
                     Board nextMoveBoard = board.playMove(pos);
-                    double nextMoveValue = boardRewards.getRewardOtherPlayer(nextMoveBoard);
+                    double nextMoveValue = policy.getRewardOtherPlayer(nextMoveBoard);
                     return new PosWeight(pos, nextMoveValue);
                 })
             .sorted(Comparator
@@ -56,8 +56,8 @@ class GameRenderer {
     }
 
 
-    static void printBestWeights(BoardRewards boardRewards) {
-        Board currentBoard = new Board(Player.O);
+    static void printBestWeights(PolicySnapshot policy) {
+        Board currentBoard = new Board(policy.getGeometry(), Player.O);
 
         System.out.println("---\nStarting board: " + currentBoard);
 
@@ -70,7 +70,7 @@ class GameRenderer {
             List<Position> emptyPositions = currentBoard.getEmptyPositions();
             for (Position emptyBoardPosition : emptyPositions) {
                 Board nextBoard = currentBoard.playMove(emptyBoardPosition);
-                double nextMoveValue = boardRewards.getRewardOtherPlayer(nextBoard);
+                double nextMoveValue = policy.getRewardOtherPlayer(nextBoard);
 
                 System.out.printf("\tcom.github.davenedde.gameengine.Position %s weight: % f%n", emptyBoardPosition, nextMoveValue);
 
@@ -89,12 +89,12 @@ class GameRenderer {
     }
 
 
-    static void printFirstMoveWeights(PrintWriter out, BoardRewards boardRewards) {
-        Board startingBoard = new Board(Player.O);
+    static void printFirstMoveWeights(PrintWriter out, PolicySnapshot policy) {
+        Board startingBoard = new Board(policy.getGeometry(), Player.O);
 
         out.println(
             startingBoard.getEmptyPositions().stream()
-            .map(position -> boardRewards.getRewardOtherPlayer(startingBoard.playMove(position)))
+            .map(position -> policy.getRewardOtherPlayer(startingBoard.playMove(position)))
             .map(reward -> String.format("%f", reward))
             .collect(Collectors.joining("\t")));
     }
@@ -0,0 +1,284 @@
+package com.github.davenedde.gameengine;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Hosts many concurrent games against the computer over localhost TCP.
+ * <p>
+ * One thread runs a non-blocking {@link Selector} over every connection, so thousands of sessions cost a buffer pair
+ * and a board each rather than a thread each.  All sessions share one thread-safe move source, e.g. a
+ * {@link PolicySnapshot} or {@link BestMoveTable}.
+ * <p>
+ * The protocol is one ASCII line per request and exactly one line per response:
+ * <ul>
+ *     <li>{@code X} or {@code O} starts a new game with the client playing that side; X moves first.
+ *     The response is {@code READY}, or {@code MOVE n} when the computer opens.</li>
+ *     <li>A position number 1..9, as typed when playing {@link TicTacToe}, plays the client's move.  The response is
+ *     {@code MOVE n} with the computer's reply, followed by {@code WINNER X|O|TIE} on the same line if the game ended,
+ *     or just {@code WINNER X|O|TIE} if the client's move ended it.</li>
+ *     <li>{@code Q} gets {@code BYE} and closes the connection.  Anything else gets {@code ERROR} and a reason.</li>
+ * </ul>
+ * A session is not read while responses to it are waiting to be written, so a client that sends requests without
+ * reading the responses is left unread instead of growing its output buffer.
+ * <p>
+ * Every five seconds with traffic the server prints the session count and the p50/p99 time from reading a request to
+ * finishing writing its response.
+ */
+class GameServer implements Runnable, AutoCloseable {
+    static final int DEFAULT_PORT = 7777;
+
+    private static final int MAX_LINE_LENGTH = 64;
+    private static final int BACKLOG = 4096;
+    private static final long REPORT_INTERVAL_NANOS = 5_000_000_000L;
+
+    private final Function<Board, Position> computerMove;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private volatile boolean running = true;
+
+    private final LatencyHistogram moveLatency = new LatencyHistogram();
+    private int sessionCount;
+
+
+    /** One connected client and its game in progress */
+    private static class Session {
+        final ByteBuffer in = ByteBuffer.allocate(MAX_LINE_LENGTH);
+        ByteBuffer out = ByteBuffer.allocate(MAX_LINE_LENGTH);
+        Board board;
+        Player clientPlayer;
+        /** nanoTime the oldest unanswered request was read, or 0 if every response has been written */
+        long pendingSince;
+        boolean closeAfterWrite;
+    }
+
+
+    /** Listen on the loopback address.  Port 0 picks a free port, see {@link #getPort()} */
+    public GameServer(Function<Board, Position> computerMove, int port) throws IOException {
+        this.computerMove = computerMove;
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+
+    @Override
+    public void run() {
+        long nextReportNanos = System.nanoTime() + REPORT_INTERVAL_NANOS;
+
+        try {
+            while (running) {
+                selector.select(REPORT_INTERVAL_NANOS / 1_000_000);
+
+                long readNanos = System.nanoTime();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            if (key.isReadable()) {
+                                read(key, readNanos);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                write(key);
+                            }
+                        }
+                    } catch (IOException e) {
+                        closeSession(key);
+                    }
+                }
+
+                if (readNanos >= nextReportNanos) {
+                    report();
+                    nextReportNanos = readNanos + REPORT_INTERVAL_NANOS;
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Game server failed", e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeSession(key);
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // Nothing left to release
+            }
+        }
+    }
+
+    /** Stop the selector thread and close every connection */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+    }
+
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.register(selector, SelectionKey.OP_READ, new Session());
+            sessionCount++;
+        }
+    }
+
+    private void read(SelectionKey key, long readNanos) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Session session = (Session) key.attachment();
+
+        if (channel.read(session.in) < 0) {
+            closeSession(key);
+            return;
+        }
+
+        session.in.flip();
+        int lineStart = 0;
+        for (int i = 0; i < session.in.limit(); i++) {
+            if (session.in.get(i) == '\n') {
+                String line = new String(session.in.array(), lineStart, i - lineStart, StandardCharsets.US_ASCII).trim();
+                respond(session, handleRequest(session, line));
+                if (session.pendingSince == 0) {
+                    session.pendingSince = readNanos;
+                }
+                lineStart = i + 1;
+            }
+        }
+        session.in.position(lineStart);
+        session.in.compact();
+
+        if (!session.in.hasRemaining()) {
+            respond(session, "ERROR line too long");
+            session.closeAfterWrite = true;
+        }
+
+        write(key);
+    }
+
+    private void write(SelectionKey key) throws IOException {
+        Session session = (Session) key.attachment();
+        if (session.out.position() > 0) {
+            session.out.flip();
+            ((SocketChannel) key.channel()).write(session.out);
+            session.out.compact();
+        }
+
+        if (session.out.position() > 0) {
+            // Stop reading until the client has taken the responses already queued
+            key.interestOps(SelectionKey.OP_WRITE);
+            return;
+        }
+
+        if (session.pendingSince != 0) {
+            moveLatency.record(System.nanoTime() - session.pendingSince);
+            session.pendingSince = 0;
+        }
+        if (session.closeAfterWrite) {
+            closeSession(key);
+        } else {
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private void respond(Session session, String response) {
+        byte[] bytes = (response + "\n").getBytes(StandardCharsets.US_ASCII);
+        if (session.out.remaining() < bytes.length) {
+            // Responses to one read of pipelined requests; reads pause until they are written, which bounds the growth
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(session.out.capacity() * 2, session.out.position() + bytes.length));
+            session.out.flip();
+            larger.put(session.out);
+            session.out = larger;
+        }
+        session.out.put(bytes);
+    }
+
+    private void closeSession(SelectionKey key) {
+        if (!key.channel().isOpen()) {
+            return;
+        }
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // Already closed by the client
+        }
+        if (key.attachment() instanceof Session) {
+            sessionCount--;
+        }
+    }
+
+
+    /** Apply one request line to the session's game and return the response line */
+    private String handleRequest(Session session, String line) {
+        if (line.equalsIgnoreCase("q")) {
+            session.closeAfterWrite = true;
+            return "BYE";
+        }
+
+        if (line.equalsIgnoreCase("x") || line.equalsIgnoreCase("o")) {
+            session.clientPlayer = Player.valueOf(line.toUpperCase());
+            session.board = new Board(Player.X);
+            return session.clientPlayer.equals(Player.X) ? "READY" : playComputerMove(session);
+        }
+
+        if (session.board == null) {
+            return "ERROR start a game with X or O";
+        }
+        if (session.board.getWinner().isPresent()) {
+            return "ERROR game is over, start a new game with X or O";
+        }
+
+        int positionNumber;
+        try {
+            positionNumber = Integer.parseInt(line);
+        } catch (NumberFormatException e) {
+            return "ERROR expected a position number, X, O or Q: " + line;
+        }
+        if (positionNumber < 1 || positionNumber > Board.CELLS
+                || (session.board.getEmptyMask() & (1L << (positionNumber - 1))) == 0) {
+            return "ERROR invalid move " + positionNumber;
+        }
+
+        session.board = session.board.playMove(Position.fromPositionNumber(positionNumber));
+        Optional<Player> winner = session.board.getWinner();
+        return winner.isPresent() ? "WINNER " + winner.get() : playComputerMove(session);
+    }
+
+    private String playComputerMove(Session session) {
+        Position move = computerMove.apply(session.board);
+        session.board = session.board.playMove(move);
+        Optional<Player> winner = session.board.getWinner();
+        return winner.isPresent() ? "MOVE " + move + " WINNER " + winner.get() : "MOVE " + move;
+    }
+
+    private void report() {
+        if (moveLatency.getCount() > 0) {
+            System.out.printf("Sessions %d, requests %d, p50 %.1f us, p99 %.1f us%n", sessionCount,
+                moveLatency.getCount(), moveLatency.getPercentile(50) / 1e3, moveLatency.getPercentile(99) / 1e3);
+            moveLatency.reset();
+        }
+    }
+}
\ No newline at end of file
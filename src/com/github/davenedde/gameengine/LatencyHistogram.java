@@ -0,0 +1,71 @@
+package com.github.davenedde.gameengine;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size histogram of latencies in nanoseconds, for percentile reporting without keeping every sample.
+ * <p>
+ * Values are bucketed by their highest set bit and the next {@link #SUB_BUCKET_BITS} bits, so each bucket is within
+ * about 6% of the values it holds and recording never allocates.  Not thread-safe: give each thread its own histogram
+ * and {@link #add(LatencyHistogram) add} them together.
+ */
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[(Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+    private long count;
+
+
+    public void record(long nanos) {
+        counts[bucketOf(Math.max(nanos, 0))]++;
+        count++;
+    }
+
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /** Return the lowest value of the bucket holding the given percentile (0..100), or 0 if nothing was recorded */
+    public long getPercentile(double percentile) {
+        long rank = (long) Math.ceil(count * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return lowestValueOf(i);
+            }
+        }
+        return 0;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+    }
+
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long lowestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return (1L << exponent) | ((long) (bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS));
+    }
+}
\ No newline at end of file
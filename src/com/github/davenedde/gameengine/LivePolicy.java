@@ -0,0 +1,103 @@
+package com.github.davenedde.gameengine;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * The policy currently being served, replaced while games are in progress as background training improves it.
+ * <p>
+ * Training owns a private BoardRewards, starting from a copy of the rewards being played.  Every publish interval
+ * the training thread copies it into a new immutable {@link PolicySnapshot} and swaps it in with a single atomic
+ * reference write.  Readers only load the reference, so the read path never locks or waits: a move is chosen from
+ * whichever snapshot was current when it started, and the old snapshot is garbage collected once no reader holds it.
+ */
+class LivePolicy {
+    /** Training games between published snapshots */
+    static final long DEFAULT_PUBLISH_INTERVAL = 10_000;
+
+    private final AtomicReference<PolicySnapshot> current;
+    private volatile long version;
+
+    /** Scores trained rewards against the policy being played.  Only used by the training thread */
+    private ConvergenceMonitor monitor;
+    private double startingQuality;
+    private double publishedQuality;
+
+
+    public LivePolicy(PolicySnapshot initialPolicy) {
+        current = new AtomicReference<>(initialPolicy);
+    }
+
+
+    /** Return the policy to use for the next move */
+    public PolicySnapshot get() {
+        return current.get();
+    }
+
+    /** Pick a move from the current policy.  Safe to call from any number of threads while training publishes */
+    public Position getBestMove(Board board) {
+        return current.get().getBestMove(board);
+    }
+
+    /** Make the policy visible to every later reader */
+    public void publish(PolicySnapshot policy) {
+        current.set(policy);
+        version++; // Only the training thread publishes
+    }
+
+    /** Number of snapshots published since the initial policy */
+    public long getVersion() {
+        return version;
+    }
+
+
+    /**
+     * Keep training a copy of startingRewards, the rewards the current policy was built from, on a daemon thread.
+     * Every publishInterval games and once more at the end the training rewards are published if they beat the policy
+     * being played.  If the finished rewards beat startingRewards they are passed to onFinished on the training thread,
+     * so a saved model is never replaced by a worse one.
+     * <p>
+     * On the standard board a policy beats another when more probe boards get an optimal greedy move, as scored by
+     * {@link ConvergenceMonitor}.  Other boards have no reference to score against, so while training is still
+     * exploring, snapshots only replace untrained rewards, and a loaded model is only replaced by the finished one.
+     */
+    public Thread startTraining(BoardRewards startingRewards, long publishInterval, Consumer<BoardRewards> onFinished) {
+        BoardRewards boardRewards = new BoardRewards(startingRewards.getGeometry());
+        startingRewards.forEachReward(boardRewards::setRewardCurrentPlayer);
+        TrainingEngine trainingEngine = new TrainingEngine(boardRewards, new SplittableRandom(),
+            TrainingEngine.DEFAULT_MAX_TRAINING_GAMES, TrainingEngine.EXPLORATORY_DECAY_RATE);
+        boolean untrained = startingRewards.size() == 0;
+
+        Thread trainingThread = new Thread(() -> {
+            monitor = ConvergenceMonitor.forGeometry(boardRewards.getGeometry());
+            // Score the copy, which still matches startingRewards, so the caller may release those once this returns
+            monitor.update(boardRewards);
+            startingQuality = monitor.getPolicyQuality();
+            publishedQuality = startingQuality;
+
+            trainingEngine.playTrainingGames(publishInterval, () -> publishIfBetter(boardRewards, untrained));
+            publishIfBetter(boardRewards, true);
+            if (Double.isNaN(startingQuality) || monitor.getPolicyQuality() > startingQuality) {
+                onFinished.accept(boardRewards);
+            }
+        }, "background-training");
+        trainingThread.setDaemon(true);
+        trainingThread.start();
+
+        return trainingThread;
+    }
+
+    /**
+     * Publish a snapshot of the rewards if they score better than the published policy or, without a reference to
+     * score against, if publishUnscored is true
+     */
+    private void publishIfBetter(BoardRewards boardRewards, boolean publishUnscored) {
+        monitor.update(boardRewards);
+        double quality = monitor.getPolicyQuality();
+        if (Double.isNaN(quality) ? publishUnscored : quality > publishedQuality) {
+            publishedQuality = quality;
+            publish(new PolicySnapshot(boardRewards));
+        }
+    }
+}
\ No newline at end of file
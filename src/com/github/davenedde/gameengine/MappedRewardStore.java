@@ -0,0 +1,255 @@
+package com.github.davenedde.gameengine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Open-addressing reward table kept in a memory-mapped file instead of on the heap, for state spaces too large for
+ * {@link RewardTable}.
+ * <p>
+ * Each slot is 16 bytes, a long key followed by a double value, in a sparse scratch file mapped in 1 GB chunks, so the
+ * table can be tens of GB while the heap holds only the chunk handles.  Nothing is allocated per entry and the garbage
+ * collector never scans the table; the OS page cache decides which parts are resident and writes cold pages back to
+ * the file.  Untouched slots are holes in the file that read as zero, which is the empty-slot key, so creating or
+ * clearing even a huge table costs nothing up front.
+ * <p>
+ * Slots are probed linearly from a multiplicative hash of the 64-bit key.  The table doubles, into a new file, when it
+ * becomes half full; sizing it for the expected number of boards up front avoids that copy.  The scratch files are
+ * deleted when the store is closed, or failing that when the JVM exits.  Like RewardTable it is not thread-safe.
+ */
+class MappedRewardStore implements RewardStore {
+    /** Key used to mark an empty slot.  A real entry with this key is kept in the hasFreeKey/freeKeyValue fields */
+    private static final long FREE_KEY = 0L;
+
+    private static final int SLOT_BYTES = 16;
+    private static final int VALUE_OFFSET = 8;
+    /** 1 GB per mapping, comfortably under the 2 GB limit of a MappedByteBuffer */
+    private static final int CHUNK_SHIFT = 30 - 4;
+    private static final long MAX_CAPACITY = 1L << 40;
+
+    private final Path directory;
+
+    private FileChannel channel;
+    private MappedByteBuffer[] chunks;
+    private long capacity;
+    private int capacityBits;
+    private long size;
+
+    private boolean hasFreeKey;
+    private double freeKeyValue;
+
+
+    /** Create an empty store with room for expectedSize entries in a scratch file in the given directory */
+    public MappedRewardStore(Path directory, long expectedSize) throws IOException {
+        this.directory = directory;
+        allocate(capacityFor(expectedSize));
+    }
+
+
+    @Override
+    public int size() {
+        return (int) Math.min(size + (hasFreeKey ? 1 : 0), Integer.MAX_VALUE);
+    }
+
+    /** Bytes of file mapped for the slots, whether or not the pages have been touched */
+    public long getMappedBytes() {
+        return capacity * SLOT_BYTES;
+    }
+
+    /**
+     * Empty the table by remapping a fresh sparse file, dropping every page of the old one.  An empty table is left as
+     * it is, so clearing a new store, as training does first, does not throw away its file
+     */
+    @Override
+    public void clear() {
+        if (size == 0 && !hasFreeKey) {
+            return;
+        }
+        try {
+            close();
+            allocate(capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        size = 0;
+        hasFreeKey = false;
+    }
+
+    @Override
+    public double getOrDefault(long key, double defaultValue) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? freeKeyValue : defaultValue;
+        }
+
+        long slot = findSlot(key);
+        return getKey(slot) != FREE_KEY ? getValue(slot) : defaultValue;
+    }
+
+    @Override
+    public double computeIfAbsent(long key, double defaultValue) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                freeKeyValue = defaultValue;
+            }
+            return freeKeyValue;
+        }
+
+        long slot = findSlot(key);
+        if (getKey(slot) != FREE_KEY) {
+            return getValue(slot);
+        }
+        insert(slot, key, defaultValue);
+        return defaultValue;
+    }
+
+    @Override
+    public void put(long key, double value) {
+        if (key == FREE_KEY) {
+            hasFreeKey = true;
+            freeKeyValue = value;
+            return;
+        }
+
+        long slot = findSlot(key);
+        if (getKey(slot) != FREE_KEY) {
+            setValue(slot, value);
+        } else {
+            insert(slot, key, value);
+        }
+    }
+
+    @Override
+    public void moveToward(long key, double target, double rate, double defaultValue) {
+        if (key == FREE_KEY) {
+            double current = computeIfAbsent(key, defaultValue);
+            freeKeyValue = current + rate * (target - current);
+            return;
+        }
+
+        // One probe for the read and the write
+        long slot = findSlot(key);
+        if (getKey(slot) != FREE_KEY) {
+            double current = getValue(slot);
+            setValue(slot, current + rate * (target - current));
+        } else {
+            insert(slot, key, defaultValue + rate * (target - defaultValue));
+        }
+    }
+
+    @Override
+    public void forEach(EntryConsumer consumer) {
+        if (hasFreeKey) {
+            consumer.accept(FREE_KEY, freeKeyValue);
+        }
+        for (long slot = 0; slot < capacity; slot++) {
+            long key = getKey(slot);
+            if (key != FREE_KEY) {
+                consumer.accept(key, getValue(slot));
+            }
+        }
+    }
+
+    /** Release the scratch file.  The mappings themselves are released once they are garbage collected */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+
+    private long getKey(long slot) {
+        return chunks[(int) (slot >>> CHUNK_SHIFT)].getLong(offsetOf(slot));
+    }
+
+    private double getValue(long slot) {
+        return chunks[(int) (slot >>> CHUNK_SHIFT)].getDouble(offsetOf(slot) + VALUE_OFFSET);
+    }
+
+    private void setValue(long slot, double value) {
+        chunks[(int) (slot >>> CHUNK_SHIFT)].putDouble(offsetOf(slot) + VALUE_OFFSET, value);
+    }
+
+    private static int offsetOf(long slot) {
+        return (int) (slot & ((1L << CHUNK_SHIFT) - 1)) * SLOT_BYTES;
+    }
+
+    /** Return the slot holding the key, or the empty slot where it would be inserted */
+    private long findSlot(long key) {
+        // Fibonacci hashing: the top bits of the product depend on every key bit
+        long slot = (key * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - capacityBits);
+        long mask = capacity - 1;
+        for (long stored = getKey(slot); stored != FREE_KEY && stored != key; stored = getKey(slot)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insert(long slot, long key, double value) {
+        MappedByteBuffer chunk = chunks[(int) (slot >>> CHUNK_SHIFT)];
+        chunk.putLong(offsetOf(slot), key);
+        chunk.putDouble(offsetOf(slot) + VALUE_OFFSET, value);
+        if (++size > capacity / 2) {
+            rehash(capacity * 2);
+        }
+    }
+
+    private void rehash(long newCapacity) {
+        if (newCapacity > MAX_CAPACITY) {
+            throw new IllegalStateException("Mapped reward store cannot grow past " + MAX_CAPACITY + " slots");
+        }
+
+        FileChannel oldChannel = channel;
+        MappedByteBuffer[] oldChunks = chunks;
+        long oldCapacity = capacity;
+
+        try {
+            allocate(newCapacity);
+            for (long slot = 0; slot < oldCapacity; slot++) {
+                int offset = offsetOf(slot);
+                MappedByteBuffer oldChunk = oldChunks[(int) (slot >>> CHUNK_SHIFT)];
+                long key = oldChunk.getLong(offset);
+                if (key != FREE_KEY) {
+                    long newSlot = findSlot(key);
+                    MappedByteBuffer chunk = chunks[(int) (newSlot >>> CHUNK_SHIFT)];
+                    chunk.putLong(offsetOf(newSlot), key);
+                    chunk.putDouble(offsetOf(newSlot) + VALUE_OFFSET, oldChunk.getDouble(offset + VALUE_OFFSET));
+                }
+            }
+            oldChannel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Map a new sparse scratch file with the given number of slots */
+    private void allocate(long newCapacity) throws IOException {
+        Path file = Files.createTempFile(directory, "rewards-", ".store");
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+
+        long bytes = newCapacity * SLOT_BYTES;
+        long chunkBytes = Math.min(bytes, (1L << CHUNK_SHIFT) * SLOT_BYTES);
+        chunks = new MappedByteBuffer[(int) (bytes / chunkBytes)];
+        for (int i = 0; i < chunks.length; i++) {
+            // Mapping past the end of the file extends it without writing, leaving a hole
+            chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * chunkBytes, chunkBytes);
+            chunks[i].order(ByteOrder.nativeOrder());
+        }
+
+        capacity = newCapacity;
+        capacityBits = Long.numberOfTrailingZeros(newCapacity);
+    }
+
+    private static long capacityFor(long expectedSize) {
+        long capacity = Long.highestOneBit(Math.max(expectedSize, 2) * 2 - 1) * 2;
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Mapped reward store too large for " + expectedSize + " entries");
+        }
+        return capacity;
+    }
+}
\ No newline at end of file
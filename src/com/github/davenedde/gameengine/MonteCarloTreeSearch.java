@@ -0,0 +1,327 @@
+package com.github.davenedde.gameengine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Computer player that searches ahead with Monte Carlo tree search instead of looking one move ahead in the rewards.
+ * <p>
+ * Each move is searched for a fixed wall-clock time or number of playouts, whichever runs out first, and the most
+ * visited move is played, so the search can be stopped at any point and still answer within a latency budget.
+ * All worker threads share one tree.  A thread counts its visit to every node on its path on the way down and only adds
+ * the result on the way back up, so until then the visit is a virtual loss that steers the other threads elsewhere.
+ * <p>
+ * Nodes live in a pool of parallel primitive arrays allocated once and reused for every move, so searching does not
+ * allocate.  A node's children are one contiguous block, claimed with an atomic counter and published by a volatile
+ * write of the block's start.  Leaves are valued by a random playout to the end of the game or, given a
+ * {@link PolicySnapshot}, by the trained reward of the leaf board.
+ * <p>
+ * One search runs at a time; concurrent callers wait their turn.
+ */
+class MonteCarloTreeSearch {
+    static final int DEFAULT_NODE_CAPACITY = 1 << 20;
+    static final long DEFAULT_MILLIS_PER_MOVE = 100;
+
+    /** UCT exploration constant, sqrt(2) for rewards in [0, 1] */
+    private static final double EXPLORATION = Math.sqrt(2);
+
+    /** Rewards are summed as fixed point so they can be added atomically */
+    private static final double REWARD_SCALE = 1 << 16;
+
+    /** children value while one thread is expanding the node */
+    private static final int EXPANDING = -1;
+
+    private final PolicySnapshot prior;
+    private final long nanosPerMove;
+    private final long playoutsPerMove;
+    private final int nodeCapacity;
+
+    /** Space taken by the move into each node, and the node's number of children */
+    private final byte[] moves;
+    private final byte[] childCounts;
+    /** First child of each node, 0 if the node has not been expanded, or EXPANDING */
+    private final AtomicIntegerArray children;
+    private final AtomicIntegerArray visits;
+    /** Sum of the rewards, times REWARD_SCALE, for the player who moved into each node */
+    private final AtomicLongArray rewardSums;
+    private final AtomicInteger nodeCount = new AtomicInteger();
+    private final AtomicLong playouts = new AtomicLong();
+
+    private final ExecutorService executor;
+    private final List<Worker> workers = new ArrayList<>();
+
+    /** Root of the current search, set before the workers start */
+    private BoardGeometry geometry;
+    private long rootXMask;
+    private long rootOMask;
+    private boolean rootOToMove;
+    private long deadline;
+
+
+    /** Search for the given time per move on every core, valuing leaves by the prior, or random playouts if null */
+    public MonteCarloTreeSearch(PolicySnapshot prior, long millisPerMove) {
+        this(prior, millisPerMove, Long.MAX_VALUE, Runtime.getRuntime().availableProcessors(), DEFAULT_NODE_CAPACITY);
+    }
+
+    /**
+     * @param prior trained rewards to value leaves with, or null for random playouts
+     * @param millisPerMove wall-clock budget for each move
+     * @param playoutsPerMove playout budget for each move; the search stops at whichever budget runs out first
+     * @param threadCount threads searching the shared tree
+     * @param nodeCapacity nodes in the pool; the tree stops growing when it is full
+     */
+    public MonteCarloTreeSearch(PolicySnapshot prior, long millisPerMove, long playoutsPerMove, int threadCount, int nodeCapacity) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Need at least one search thread, got " + threadCount);
+        }
+        if (nodeCapacity <= BoardGeometry.MAX_CELLS) {
+            throw new IllegalArgumentException("Need room for more than " + BoardGeometry.MAX_CELLS + " nodes, got " + nodeCapacity);
+        }
+        this.prior = prior;
+        this.nanosPerMove = millisPerMove * 1_000_000;
+        this.playoutsPerMove = playoutsPerMove;
+        this.nodeCapacity = nodeCapacity;
+
+        moves = new byte[nodeCapacity];
+        childCounts = new byte[nodeCapacity];
+        children = new AtomicIntegerArray(nodeCapacity);
+        visits = new AtomicIntegerArray(nodeCapacity);
+        rewardSums = new AtomicLongArray(nodeCapacity);
+
+        executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "mcts-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < threadCount; i++) {
+            workers.add(new Worker());
+        }
+    }
+
+
+    /** Search from the board within the budget and return the most visited move */
+    public synchronized Position getBestMove(Board board) {
+        if (board.getWinner().isPresent()) {
+            throw new RuntimeException("No moves left on board " + board);
+        }
+        geometry = board.getGeometry();
+        if (prior != null && !prior.getGeometry().equals(geometry)) {
+            throw new IllegalArgumentException("Prior was trained on " + prior.getGeometry() + " boards, not " + geometry);
+        }
+
+        long emptyMask = board.getEmptyMask();
+        if (Long.bitCount(emptyMask) == 1) {
+            return geometry.getLowestPosition(emptyMask);
+        }
+
+        rootXMask = board.getXMask();
+        rootOMask = board.getOMask();
+        rootOToMove = board.getCurrentPlayer() == Player.O;
+        initNode(0, 0);
+        nodeCount.set(1);
+        expand(0, emptyMask);
+        playouts.set(0);
+        deadline = System.nanoTime() + nanosPerMove;
+
+        try {
+            for (Future<Void> result : executor.invokeAll(workers)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted during search", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Search worker failed", e.getCause());
+        }
+
+        int bestChild = -1;
+        int first = children.get(0);
+        for (int child = first; child < first + childCounts[0]; child++) {
+            if (bestChild < 0 || visits.get(child) > visits.get(bestChild)) {
+                bestChild = child;
+            }
+        }
+        return geometry.getPosition(moves[bestChild] + 1);
+    }
+
+    /** Playouts run by the last search */
+    public long getPlayouts() {
+        return Math.min(playouts.get(), playoutsPerMove);
+    }
+
+    /** Nodes in the tree built by the last search */
+    public int getNodeCount() {
+        return Math.min(nodeCount.get(), nodeCapacity);
+    }
+
+
+    private void initNode(int node, int cell) {
+        moves[node] = (byte) cell;
+        childCounts[node] = 0;
+        children.set(node, 0);
+        visits.set(node, 0);
+        rewardSums.set(node, 0);
+    }
+
+    /**
+     * Claim and publish a child for every empty space.  Return false if another thread is expanding the node or the
+     * pool is full
+     */
+    private boolean expand(int node, long emptyMask) {
+        int count = Long.bitCount(emptyMask);
+        if (nodeCount.get() + count > nodeCapacity || !children.compareAndSet(node, 0, EXPANDING)) {
+            return false;
+        }
+
+        int first = nodeCount.getAndAdd(count);
+        if (first + count > nodeCapacity) {
+            children.set(node, 0);
+            return false;
+        }
+
+        int child = first;
+        for (; emptyMask != 0; emptyMask &= emptyMask - 1) {
+            initNode(child++, Long.numberOfTrailingZeros(emptyMask));
+        }
+        childCounts[node] = (byte) count;
+        children.set(node, first);
+        return true;
+    }
+
+    /** One search thread.  Reused for every move, with its own path buffer */
+    private class Worker implements Callable<Void> {
+        /** Nodes from the root to the current leaf */
+        private final int[] path = new int[BoardGeometry.MAX_CELLS + 1];
+
+        @Override
+        public Void call() {
+            while (System.nanoTime() < deadline && playouts.getAndIncrement() < playoutsPerMove) {
+                playout();
+            }
+            return null;
+        }
+
+        /** Select a path to a leaf, expand it, value it and back the value up the path */
+        private void playout() {
+            long moverMask = rootOToMove ? rootOMask : rootXMask;
+            long opponentMask = rootOToMove ? rootXMask : rootOMask;
+            boolean oToMove = rootOToMove;
+
+            int node = 0;
+            int depth = 0;
+            path[depth++] = node;
+            visits.incrementAndGet(node);
+
+            // Reward for the player who moved into the node on the end of the path
+            double reward;
+            while (true) {
+                int first = children.get(node);
+                if (first <= 0) {
+                    if (first == 0 && expand(node, ~(moverMask | opponentMask) & geometry.getFullMask())) {
+                        first = children.get(node);
+                    } else {
+                        // Another thread is expanding it, or the pool is full
+                        reward = evaluateLeaf(moverMask, opponentMask, oToMove);
+                        break;
+                    }
+                }
+
+                node = selectChild(node, first);
+                path[depth++] = node;
+                int nodeVisits = visits.incrementAndGet(node);
+
+                long bit = 1L << moves[node];
+                long newMoverMask = moverMask | bit;
+                if (geometry.completesLine(newMoverMask, moves[node])) {
+                    reward = 1.0;
+                    break;
+                } else if ((newMoverMask | opponentMask) == geometry.getFullMask()) {
+                    reward = 0.5;
+                    break;
+                }
+                moverMask = opponentMask;
+                opponentMask = newMoverMask;
+                oToMove = !oToMove;
+
+                if (nodeVisits == 1) {
+                    // First visit to this node: value it without growing the tree further
+                    reward = evaluateLeaf(moverMask, opponentMask, oToMove);
+                    break;
+                }
+            }
+
+            // The visits were counted on the way down; add the reward, alternating between the players
+            long scaledReward = Math.round(reward * REWARD_SCALE);
+            for (int i = depth - 1; i >= 0; i--) {
+                rewardSums.addAndGet(path[i], scaledReward);
+                scaledReward = (long) REWARD_SCALE - scaledReward;
+            }
+        }
+
+        /** UCT: the child with the best average reward plus exploration bonus.  Unvisited children come first */
+        private int selectChild(int node, int first) {
+            double logParentVisits = Math.log(Math.max(visits.get(node), 1));
+
+            int bestChild = first;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int child = first; child < first + childCounts[node]; child++) {
+                int childVisits = visits.get(child);
+                if (childVisits == 0) {
+                    return child;
+                }
+                double score = rewardSums.get(child) / (REWARD_SCALE * childVisits)
+                    + EXPLORATION * Math.sqrt(logParentVisits / childVisits);
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestChild = child;
+                }
+            }
+            return bestChild;
+        }
+
+        /** Value of an unfinished board for the player who just moved */
+        private double evaluateLeaf(long moverMask, long opponentMask, boolean oToMove) {
+            if (prior != null) {
+                long xMask = oToMove ? opponentMask : moverMask;
+                long oMask = oToMove ? moverMask : opponentMask;
+                return 1.0 - prior.getRewardCurrentPlayer(geometry.canonicalKey(xMask, oMask, oToMove));
+            }
+            return 1.0 - rollout(moverMask, opponentMask);
+        }
+
+        /** Play uniformly random moves to the end of the game and return the reward for the player to move first */
+        private double rollout(long moverMask, long opponentMask) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            boolean firstPlayerMoving = true;
+            while (true) {
+                long emptyMask = ~(moverMask | opponentMask) & geometry.getFullMask();
+                for (int skip = random.nextInt(Long.bitCount(emptyMask)); skip > 0; skip--) {
+                    emptyMask &= emptyMask - 1;
+                }
+                long bit = Long.lowestOneBit(emptyMask);
+                moverMask |= bit;
+
+                if (geometry.completesLine(moverMask, Long.numberOfTrailingZeros(bit))) {
+                    return firstPlayerMoving ? 1.0 : 0.0;
+                } else if ((moverMask | opponentMask) == geometry.getFullMask()) {
+                    return 0.5;
+                }
+
+                long swap = moverMask;
+                moverMask = opponentMask;
+                opponentMask = swap;
+                firstPlayerMoving = !firstPlayerMoving;
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,270 @@
+package com.github.davenedde.gameengine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Value function for boards too large for a reward table: an n-tuple network.
+ * <p>
+ * Each tuple is one winning line of the geometry, read space by space as empty, taken by the player to move or taken
+ * by the other player, giving an index into a lookup table of 3^k weights.  Lines that are rotations or reflections of
+ * each other share one table, and each table is kept equal for a pattern and its reverse, so equivalent boards always
+ * get the same value.  The value for the player to move is the logistic function of the sum of the weights, so an
+ * untrained network values every board at {@link BoardRewards#DEFAULT_REWARD}.
+ * <p>
+ * The weights are one flat array sized by the geometry alone, so memory stays constant however many boards training
+ * visits.  Evaluation reads the two player masks directly and never allocates.  Where a line's spaces are spaced far
+ * enough apart, one multiplication gathers them into adjacent bits and the table index is looked up from those bits,
+ * instead of being built a space at a time.  Like a BoardRewards being trained, a network is not thread-safe while it
+ * is being updated.
+ */
+class NTupleNetwork {
+    /** Longest line that gets a table: 3^10 weights */
+    private static final int MAX_TUPLE_LENGTH = 10;
+
+    private final BoardGeometry geometry;
+
+    /** Spaces per tuple: the win length */
+    private final int tupleLength;
+    private final int tupleCount;
+    private final long[] tupleMasks;
+    /** Spaces of tuple t in increasing order are tupleCells[t * tupleLength] .. tupleCells[(t + 1) * tupleLength - 1] */
+    private final int[] tupleCells;
+    /** Start of the weight table read by tuple t */
+    private final int[] tupleOffsets;
+
+    /**
+     * (mask & tupleMasks[t]) * gatherMultipliers[t] >>> gatherShifts[t] holds the tuple's spaces in its low bits,
+     * or the multiplier is 0 where no single multiplication can gather them
+     */
+    private final long[] gatherMultipliers;
+    private final int[] gatherShifts;
+
+    /** Table index of a line holding only the mover's spaces, indexed by the gathered bits */
+    private final int[] patternIndexes;
+    /** Index of the same spaces read in the opposite direction */
+    private final int[] reversedIndexes;
+
+    private final double[] weights;
+    /** Table index of each tuple for the board being backed up, so they are only computed once */
+    private final int[] backUpIndexes;
+
+
+    public NTupleNetwork(BoardGeometry geometry) {
+        this.geometry = geometry;
+        this.tupleLength = geometry.getWinLength();
+        if (tupleLength > MAX_TUPLE_LENGTH) {
+            throw new IllegalArgumentException("N-tuple networks support lines of up to " + MAX_TUPLE_LENGTH + " spaces, not " + tupleLength);
+        }
+
+        int tableSize = (int) Math.pow(3, tupleLength);
+        tupleMasks = geometry.getWinningLines();
+        tupleCount = tupleMasks.length;
+        tupleCells = new int[tupleCount * tupleLength];
+        tupleOffsets = new int[tupleCount];
+        gatherMultipliers = new long[tupleCount];
+        gatherShifts = new int[tupleCount];
+
+        List<Long> baseLines = new ArrayList<>();
+        for (int tuple = 0; tuple < tupleCount; tuple++) {
+            int base = findBaseLine(tupleMasks[tuple], baseLines);
+            if (base < 0) {
+                base = baseLines.size();
+                baseLines.add(tupleMasks[tuple]);
+            }
+            tupleOffsets[tuple] = base * tableSize;
+
+            int cellIndex = tuple * tupleLength;
+            for (long mask = tupleMasks[tuple]; mask != 0; mask &= mask - 1) {
+                tupleCells[cellIndex++] = Long.numberOfTrailingZeros(mask);
+            }
+            buildGather(tuple);
+        }
+        weights = new double[baseLines.size() * tableSize];
+        backUpIndexes = new int[tupleCount];
+
+        patternIndexes = new int[1 << tupleLength];
+        for (int pattern = 1; pattern < patternIndexes.length; pattern++) {
+            int bit = Integer.numberOfTrailingZeros(pattern);
+            patternIndexes[pattern] = patternIndexes[pattern & (pattern - 1)] + (int) Math.pow(3, bit);
+        }
+
+        reversedIndexes = new int[tableSize];
+        for (int index = 0; index < tableSize; index++) {
+            int reversed = 0;
+            for (int i = 0, rest = index; i < tupleLength; i++, rest /= 3) {
+                reversed = reversed * 3 + rest % 3;
+            }
+            reversedIndexes[index] = reversed;
+        }
+    }
+
+    /** Return the base line that the line is a rotation or reflection of, or -1 if there is none yet */
+    private int findBaseLine(long line, List<Long> baseLines) {
+        for (int base = 0; base < baseLines.size(); base++) {
+            for (int symmetry = 0; symmetry < geometry.getSymmetryCount(); symmetry++) {
+                if (geometry.applySymmetry(baseLines.get(base), symmetry) == line) {
+                    return base;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Multiplying the masked line by one power of two per space adds up shifted copies of it, and the copy shifted
+     * (k - 1 - i) * (stride - 1) places puts space i at bit i of a common window.  That only works if the other copies
+     * never overlap and carry into the window, so every subset of the line is checked.
+     */
+    private void buildGather(int tuple) {
+        int first = tupleCells[tuple * tupleLength];
+        int stride = tupleLength > 1 ? tupleCells[tuple * tupleLength + 1] - first : 1;
+
+        long multiplier = 0;
+        for (int i = 0; i < tupleLength; i++) {
+            multiplier |= 1L << ((tupleLength - 1 - i) * (stride - 1));
+        }
+        int shift = first + (tupleLength - 1) * (stride - 1);
+
+        for (int pattern = 0; pattern < 1 << tupleLength; pattern++) {
+            long mask = 0;
+            for (int i = 0; i < tupleLength; i++) {
+                if ((pattern & (1 << i)) != 0) {
+                    mask |= 1L << tupleCells[tuple * tupleLength + i];
+                }
+            }
+            if ((mask * multiplier >>> shift & ((1 << tupleLength) - 1)) != pattern) {
+                return;
+            }
+        }
+
+        gatherMultipliers[tuple] = multiplier;
+        gatherShifts[tuple] = shift;
+    }
+
+
+    public BoardGeometry getGeometry() {
+        return geometry;
+    }
+
+    /** Number of trained weights, fixed by the geometry */
+    public int getWeightCount() {
+        return weights.length;
+    }
+
+    /** Number of table lookups per evaluation */
+    public int getTupleCount() {
+        return tupleCount;
+    }
+
+
+    /** Return the value of an unfinished board for the player about to move */
+    public double getRewardCurrentPlayer(Board board) {
+        return getValue(moverMask(board), opponentMask(board));
+    }
+
+    /** Return the value of the board for the player that just moved.  Finished boards get their exact reward */
+    public double getRewardOtherPlayer(Board board) {
+        if (board.getWinner().isPresent()) {
+            return 1.0 - BoardRewards.getTerminalRewardCurrentPlayer(board, board.getWinner().get());
+        }
+        return 1.0 - getRewardCurrentPlayer(board);
+    }
+
+    /** Return the move with the highest value for the player about to move, without allocating */
+    public Position getBestMove(Board board) {
+        long moverMask = moverMask(board);
+        long opponentMask = opponentMask(board);
+
+        long bestBit = 0;
+        double bestValue = -Double.MAX_VALUE;
+        for (long emptyMask = board.getEmptyMask(); emptyMask != 0; emptyMask &= emptyMask - 1) {
+            long bit = Long.lowestOneBit(emptyMask);
+            double value = getMoveValue(moverMask, opponentMask, bit);
+            if (value > bestValue) {
+                bestValue = value;
+                bestBit = bit;
+            }
+        }
+
+        if (bestBit == 0) {
+            throw new RuntimeException("No moves left on board " + board);
+        }
+        return geometry.getLowestPosition(bestBit);
+    }
+
+    /** Value for the mover of taking the space bit: exact if it ends the game, otherwise 1 - the opponent's value */
+    double getMoveValue(long moverMask, long opponentMask, long bit) {
+        long newMoverMask = moverMask | bit;
+        if (geometry.completesLine(newMoverMask, Long.numberOfTrailingZeros(bit))) {
+            return 1.0;
+        } else if ((newMoverMask | opponentMask) == geometry.getFullMask()) {
+            return 0.5;
+        }
+        return 1.0 - getValue(opponentMask, newMoverMask);
+    }
+
+    /** Value of an unfinished board for the player to move, given the spaces of that player and of the opponent */
+    double getValue(long moverMask, long opponentMask) {
+        double sum = 0;
+        for (int tuple = 0; tuple < tupleCount; tuple++) {
+            sum += weights[tupleOffsets[tuple] + tableIndex(tuple, moverMask, opponentMask)];
+        }
+        return logistic(sum);
+    }
+
+    /**
+     * Move the value of the board the given fraction of the way toward target, by gradient descent on the weights.
+     * Each weight is updated together with the weight for the reversed pattern, keeping the tables symmetric.
+     */
+    void backUp(long moverMask, long opponentMask, double target, double rate) {
+        double sum = 0;
+        for (int tuple = 0; tuple < tupleCount; tuple++) {
+            int index = tableIndex(tuple, moverMask, opponentMask);
+            backUpIndexes[tuple] = index;
+            sum += weights[tupleOffsets[tuple] + index];
+        }
+        double step = rate * (target - logistic(sum)) / tupleCount;
+
+        for (int tuple = 0; tuple < tupleCount; tuple++) {
+            int index = backUpIndexes[tuple];
+            int reversed = reversedIndexes[index];
+            weights[tupleOffsets[tuple] + index] += step;
+            if (reversed != index) {
+                weights[tupleOffsets[tuple] + reversed] += step;
+            }
+        }
+    }
+
+
+    /** Base-3 number of the tuple's spaces, lowest space as the lowest digit: 0 empty, 1 the mover's, 2 the opponent's */
+    private int tableIndex(int tuple, long moverMask, long opponentMask) {
+        long multiplier = gatherMultipliers[tuple];
+        if (multiplier != 0) {
+            long tupleMask = tupleMasks[tuple];
+            int shift = gatherShifts[tuple];
+            int patternMask = (1 << tupleLength) - 1;
+            return patternIndexes[(int) ((moverMask & tupleMask) * multiplier >>> shift) & patternMask]
+                + 2 * patternIndexes[(int) ((opponentMask & tupleMask) * multiplier >>> shift) & patternMask];
+        }
+
+        int index = 0;
+        for (int cellIndex = (tuple + 1) * tupleLength - 1; cellIndex >= tuple * tupleLength; cellIndex--) {
+            int cell = tupleCells[cellIndex];
+            index = index * 3 + (int) ((moverMask >>> cell) & 1) + 2 * (int) ((opponentMask >>> cell) & 1);
+        }
+        return index;
+    }
+
+    private static double logistic(double x) {
+        return 1.0 / (1.0 + Math.exp(-x));
+    }
+
+    private static long moverMask(Board board) {
+        return board.getCurrentPlayer() == Player.X ? board.getXMask() : board.getOMask();
+    }
+
+    private static long opponentMask(Board board) {
+        return board.getCurrentPlayer() == Player.X ? board.getOMask() : board.getXMask();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,154 @@
+package com.github.davenedde.gameengine;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Alternative to TrainingEngine that trains an {@link NTupleNetwork} instead of filling a reward table.
+ * <p>
+ * Games are self-play, exploring with an {@link ExplorationStrategy} as TrainingEngine does, by default the same
+ * decaying epsilon-greedy schedule.  Each game is kept as the two
+ * player masks before every move, and afterwards each board is backed up toward 1 - the value of the board after it,
+ * last move first, the same TD backup TrainingEngine applies to its reward table.  Boards are never created, so
+ * training does not allocate.
+ */
+class NTupleTrainingEngine {
+    /** Fraction of the TD error each backup removes.  Lower than TrainingEngine's, as every weight is shared by many boards */
+    static final double DEFAULT_TRAINING_RATE = 0.5;
+
+    private final NTupleNetwork network;
+    private final BoardGeometry geometry;
+    private final RandomGenerator random;
+    private final long maxTrainingGames;
+    private final double trainingRate;
+    private final ExplorationStrategy explorationStrategy;
+    /** Values the moves of the board being explored for the strategy */
+    private final ExplorationStrategy.MoveValues moveValues = this::getMoveValue;
+    private long exploringMoverMask;
+    private long exploringOpponentMask;
+
+    /** Spaces of the player to move and of the other player before each ply of the current game */
+    private final long[] episodeMoverMasks;
+    private final long[] episodeOpponentMasks;
+
+
+    public NTupleTrainingEngine(NTupleNetwork network, RandomGenerator random, long maxTrainingGames) {
+        this(network, random, maxTrainingGames,
+            new EpsilonGreedyExploration(TrainingEngine.EXPLORATORY_RATE, TrainingEngine.EXPLORATORY_DECAY_RATE));
+    }
+
+    /** Create an engine that explores with the given strategy, e.g. {@link SoftmaxExploration} */
+    public NTupleTrainingEngine(NTupleNetwork network, RandomGenerator random, long maxTrainingGames, ExplorationStrategy explorationStrategy) {
+        this(network, random, maxTrainingGames, explorationStrategy, DEFAULT_TRAINING_RATE);
+    }
+
+    public NTupleTrainingEngine(NTupleNetwork network, RandomGenerator random, long maxTrainingGames,
+            ExplorationStrategy explorationStrategy, double trainingRate) {
+        this.network = network;
+        this.geometry = network.getGeometry();
+        this.random = random;
+        this.maxTrainingGames = maxTrainingGames;
+        this.explorationStrategy = explorationStrategy;
+        this.trainingRate = trainingRate;
+
+        episodeMoverMasks = new long[geometry.getCells()];
+        episodeOpponentMasks = new long[geometry.getCells()];
+    }
+
+
+    public NTupleNetwork train() {
+        long startNanos = System.nanoTime();
+
+        explorationStrategy.reset();
+        long firstPlayerWins = 0;
+        long draws = 0;
+        for (long game = 0; game < maxTrainingGames; game++) {
+            double firstPlayerReward = playEpisode();
+            explorationStrategy.endGame();
+
+            if (firstPlayerReward == 1.0) {
+                firstPlayerWins++;
+            } else if (firstPlayerReward == 0.5) {
+                draws++;
+            }
+        }
+
+        System.out.printf("N-tuple network: %d games (first player won %d, drew %d), %d weights in %.1f ms%n",
+            maxTrainingGames, firstPlayerWins, draws, network.getWeightCount(), (System.nanoTime() - startNanos) / 1e6);
+
+        return network;
+    }
+
+
+    /**
+     * Play one training game and back its result up through every board of the game.
+     *
+     * @return the reward of the game for the first player: 1 win, 0.5 tie, 0 loss
+     */
+    double playEpisode() {
+        long moverMask = 0;
+        long opponentMask = 0;
+        int length = 0;
+
+        double moverReward;
+        while (true) {
+            episodeMoverMasks[length] = moverMask;
+            episodeOpponentMasks[length] = opponentMask;
+            length++;
+
+            long bit = getNextMove(moverMask, opponentMask);
+            moverMask |= bit;
+
+            if (geometry.completesLine(moverMask, Long.numberOfTrailingZeros(bit))) {
+                moverReward = 1.0;
+                break;
+            } else if ((moverMask | opponentMask) == geometry.getFullMask()) {
+                moverReward = 0.5;
+                break;
+            }
+
+            // The other player moves next
+            long swap = moverMask;
+            moverMask = opponentMask;
+            opponentMask = swap;
+        }
+
+        // The last board learns the exact result, then each earlier board learns from its already updated successor
+        network.backUp(episodeMoverMasks[length - 1], episodeOpponentMasks[length - 1], moverReward, trainingRate);
+        for (int ply = length - 2; ply >= 0; ply--) {
+            double target = 1.0 - network.getValue(episodeMoverMasks[ply + 1], episodeOpponentMasks[ply + 1]);
+            network.backUp(episodeMoverMasks[ply], episodeOpponentMasks[ply], target, trainingRate);
+        }
+
+        // The first player made the last move when the game lasted an odd number of plies
+        return length % 2 == 1 ? moverReward : 1.0 - moverReward;
+    }
+
+    /** Return the bit of the strategy's exploratory move if it makes one, otherwise of the best empty space */
+    private long getNextMove(long moverMask, long opponentMask) {
+        long emptyMask = ~(moverMask | opponentMask) & geometry.getFullMask();
+
+        exploringMoverMask = moverMask;
+        exploringOpponentMask = opponentMask;
+        long exploratoryBit = explorationStrategy.explore(emptyMask, moveValues, random);
+        if (exploratoryBit != 0) {
+            return exploratoryBit;
+        }
+
+        long bestBit = 0;
+        double bestValue = -Double.MAX_VALUE;
+        for (; emptyMask != 0; emptyMask &= emptyMask - 1) {
+            long bit = Long.lowestOneBit(emptyMask);
+            double value = network.getMoveValue(moverMask, opponentMask, bit);
+            if (value > bestValue) {
+                bestValue = value;
+                bestBit = bit;
+            }
+        }
+        return bestBit;
+    }
+
+    /** Value for the mover of taking the space bit on the board being explored */
+    private double getMoveValue(long bit) {
+        return network.getMoveValue(exploringMoverMask, exploringOpponentMask, bit);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,278 @@
+package com.github.davenedde.gameengine;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Computes exact game values by negamax search with alpha-beta pruning.
+ * <p>
+ * Results are cached in a {@link TranspositionTable} keyed on the canonical board key, so each position is searched
+ * once for all of its rotations and reflections.  Moves are ordered best-known child first, then by how many winning
+ * lines pass through the space.  {@link #search(Board, int)} deepens iteratively, so a depth limit keeps larger boards
+ * usable and an unlimited search stops as soon as the game tree is exhausted.
+ * <p>
+ * Scores are from the point of view of the player about to move: positive is a forced win, negative a forced loss,
+ * zero a draw.  Faster wins score higher.
+ */
+class NegamaxSolver {
+    /** Score of a win on a full board.  A win with n empty spaces left scores WIN_SCORE + n */
+    static final int WIN_SCORE = 1000;
+    private static final int INFINITY = WIN_SCORE * 2;
+
+    /** Depth stored for results that did not hit the depth limit, so they are valid for any depth */
+    private static final int EXACT_DEPTH = Byte.MAX_VALUE;
+    private static final long NO_CHILD = -1L;
+
+    private final TranspositionTable transpositionTable;
+
+    /** Spaces in the order moves are tried: most winning lines through the space first.  Rebuilt if the board shape changes */
+    private BoardGeometry moveOrderGeometry;
+    private int[] moveOrder;
+
+    /** Set when the current subtree was cut off by the depth limit, so its score is not exact */
+    private boolean hitDepthLimit;
+    private long nodesSearched;
+
+
+    /** Result of searching one position */
+    static class SearchResult {
+        private final Position bestMove;
+        private final int score;
+        private final int depth;
+        private final boolean exact;
+
+        SearchResult(Position bestMove, int score, int depth, boolean exact) {
+            this.bestMove = bestMove;
+            this.score = score;
+            this.depth = depth;
+            this.exact = exact;
+        }
+
+        /** Best move for the player to move, or null if the game is over */
+        public Position getBestMove() { return bestMove; }
+        public int getScore() { return score; }
+        /** Depth of the last completed iteration */
+        public int getDepth() { return depth; }
+        /** Whether the whole game tree was searched, making the score the true game value */
+        public boolean isExact() { return exact; }
+    }
+
+
+    public NegamaxSolver() {
+        this(1 << 16);
+    }
+
+    public NegamaxSolver(int transpositionTableSize) {
+        transpositionTable = new TranspositionTable(transpositionTableSize);
+    }
+
+
+    /** Search the whole game tree and return the exact value and best move */
+    public SearchResult solve(Board board) {
+        return search(board, board.getGeometry().getCells());
+    }
+
+    /**
+     * Iterative deepening: search to depth 1, 2, ... maxDepth, stopping early once a search is not cut off by the
+     * depth limit.  Each iteration reuses the transposition table for move ordering.
+     */
+    public SearchResult search(Board board, int maxDepth) {
+        if (!board.getGeometry().equals(moveOrderGeometry)) {
+            moveOrderGeometry = board.getGeometry();
+            moveOrder = buildMoveOrder(moveOrderGeometry);
+        }
+
+        SearchResult result = searchRoot(board, Math.min(1, maxDepth));
+        for (int depth = 2; depth <= maxDepth && !result.isExact(); depth++) {
+            result = searchRoot(board, depth);
+        }
+        return result;
+    }
+
+    /** Return the exact score of the board for the player about to move */
+    public int getScore(Board board) {
+        return solve(board).getScore();
+    }
+
+    /** Whether playing the move keeps the best achievable result (win, draw or loss) for the player to move */
+    public boolean isOptimalMove(Board board, Position move) {
+        return Integer.signum(-getScore(board.playMove(move))) == Integer.signum(getScore(board));
+    }
+
+    /** Map a score to a reward in the same 0..1 range BoardRewards uses: 1 win, 0.5 draw, 0 loss */
+    static double toReward(int score) {
+        return score > 0 ? 1.0 : score < 0 ? 0.0 : 0.5;
+    }
+
+    /** Store the exact reward of every board reachable from either starting player */
+    public void fillRewards(BoardRewards boardRewards) {
+        Set<Long> visited = new HashSet<>();
+        Deque<Board> pending = new ArrayDeque<>();
+        pending.push(new Board(boardRewards.getGeometry(), Player.X));
+        pending.push(new Board(boardRewards.getGeometry(), Player.O));
+
+        while (!pending.isEmpty()) {
+            Board board = pending.pop();
+            if (!visited.add(board.getCanonicalKey())) {
+                continue;
+            }
+
+            boardRewards.setRewardCurrentPlayer(board, toReward(getScore(board)));
+
+            if (!board.getWinner().isPresent()) {
+                for (Position position : board.getEmptyPositions()) {
+                    pending.push(board.playMove(position));
+                }
+            }
+        }
+    }
+
+    public long getNodesSearched() {
+        return nodesSearched;
+    }
+
+
+    private SearchResult searchRoot(Board board, int depth) {
+        hitDepthLimit = false;
+
+        if (board.getWinner().isPresent()) {
+            return new SearchResult(null, terminalScore(board, board.getWinner().get()), depth, true);
+        }
+
+        Position bestMove = null;
+        int bestScore = -INFINITY;
+        long firstChildKey = bestChildKey(board.getCanonicalKey());
+
+        for (int i = -1; i < moveOrder.length; i++) {
+            Position move = nextMove(board, i, firstChildKey);
+            if (move == null) {
+                continue;
+            }
+
+            int score = -negamax(board.playMove(move), depth - 1, -INFINITY, -bestScore);
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+            }
+        }
+
+        transpositionTable.store(board.getCanonicalKey(), bestScore, TranspositionTable.EXACT,
+            hitDepthLimit ? depth : EXACT_DEPTH, board.getCanonicalKeyAfterMove(bestMove));
+
+        return new SearchResult(bestMove, bestScore, depth, !hitDepthLimit);
+    }
+
+    private int negamax(Board board, int depth, int alpha, int beta) {
+        nodesSearched++;
+
+        Optional<Player> winner = board.getWinner();
+        if (winner.isPresent()) {
+            return terminalScore(board, winner.get());
+        }
+        if (depth <= 0) {
+            hitDepthLimit = true;
+            return 0;
+        }
+
+        long key = board.getCanonicalKey();
+        int slot = transpositionTable.find(key);
+        if (slot >= 0 && transpositionTable.getDepth(slot) >= depth) {
+            int cachedScore = transpositionTable.getScore(slot);
+            byte flag = transpositionTable.getFlag(slot);
+            if (flag == TranspositionTable.EXACT
+                    || flag == TranspositionTable.LOWER_BOUND && cachedScore >= beta
+                    || flag == TranspositionTable.UPPER_BOUND && cachedScore <= alpha) {
+                if (transpositionTable.getDepth(slot) < EXACT_DEPTH) {
+                    hitDepthLimit = true;
+                }
+                return cachedScore;
+            }
+        }
+
+        boolean parentHitDepthLimit = hitDepthLimit;
+        hitDepthLimit = false;
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        long bestChildKey = NO_CHILD;
+        long firstChildKey = slot >= 0 ? transpositionTable.getBestChildKey(slot) : NO_CHILD;
+
+        for (int i = -1; i < moveOrder.length && alpha < beta; i++) {
+            Position move = nextMove(board, i, firstChildKey);
+            if (move == null) {
+                continue;
+            }
+
+            Board child = board.playMove(move);
+            int score = -negamax(child, depth - 1, -beta, -alpha);
+            if (score > bestScore) {
+                bestScore = score;
+                bestChildKey = child.getCanonicalKey();
+            }
+            alpha = Math.max(alpha, score);
+        }
+
+        byte flag = bestScore <= originalAlpha ? TranspositionTable.UPPER_BOUND
+            : bestScore >= beta ? TranspositionTable.LOWER_BOUND
+            : TranspositionTable.EXACT;
+        transpositionTable.store(key, bestScore, flag, hitDepthLimit ? depth : EXACT_DEPTH, bestChildKey);
+
+        hitDepthLimit |= parentHitDepthLimit;
+        return bestScore;
+    }
+
+    /**
+     * Move ordering.  Index -1 is the cached best child (if any), then the spaces in moveOrder, skipping the cached
+     * best child so it is not searched twice.  Returns null when index i is not a playable move.
+     */
+    private Position nextMove(Board board, int i, long firstChildKey) {
+        if (i < 0) {
+            if (firstChildKey == NO_CHILD) {
+                return null;
+            }
+            for (int cell : moveOrder) {
+                Position move = emptyPosition(board, cell);
+                if (move != null && board.getCanonicalKeyAfterMove(move) == firstChildKey) {
+                    return move;
+                }
+            }
+            return null;
+        }
+
+        Position move = emptyPosition(board, moveOrder[i]);
+        if (move == null || firstChildKey != NO_CHILD && board.getCanonicalKeyAfterMove(move) == firstChildKey) {
+            return null;
+        }
+        return move;
+    }
+
+    private static Position emptyPosition(Board board, int cell) {
+        return (board.getEmptyMask() & (1L << cell)) != 0 ? board.getGeometry().getPosition(cell + 1) : null;
+    }
+
+    private long bestChildKey(long key) {
+        int slot = transpositionTable.find(key);
+        return slot >= 0 ? transpositionTable.getBestChildKey(slot) : NO_CHILD;
+    }
+
+    /** Score of a finished game for the player who would move next */
+    private static int terminalScore(Board board, Player winner) {
+        if (winner == Player.TIE) {
+            return 0;
+        }
+        int score = WIN_SCORE + Long.bitCount(board.getEmptyMask());
+        return winner == board.getCurrentPlayer() ? score : -score;
+    }
+
+    private static int[] buildMoveOrder(BoardGeometry geometry) {
+        return IntStream.range(0, geometry.getCells())
+            .boxed()
+            .sorted((a, b) -> Integer.compare(geometry.getLineCount(b), geometry.getLineCount(a)))
+            .mapToInt(Integer::intValue)
+            .toArray();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,104 @@
+package com.github.davenedde.gameengine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Trains a single BoardRewards with several self-play workers running at the same time.
+ * <p>
+ * Each worker is its own TrainingEngine with its own SplittableRandom and exploration schedule, and all workers
+ * back up into one lock-free {@link ConcurrentRewardTable}.  The total number of games matches the single-threaded
+ * engine; each worker plays its share and decays its exploratory rate correspondingly faster.
+ * <p>
+ * The shared table cannot grow, so it is sized for every board training could reach, and a run that could outgrow the
+ * largest table is rejected before any game is played.  Throughput has so far only been measured on a single core;
+ * how it scales with more workers has not been shown.
+ */
+class ParallelTrainingEngine {
+    /** More than every legal 3x3 position with either player to move, 2 * 5,478 boards */
+    private static final int REWARD_TABLE_SIZE = 1 << 14;
+    /** Larger boards can see a new board every ply of every game; the table is capped to stay in memory */
+    private static final int MAX_REWARD_TABLE_SIZE = 1 << 24;
+
+    private final int workerCount;
+    private final long maxTrainingGames;
+    private final BoardGeometry geometry;
+    /** Boards the shared table must be able to hold */
+    private final int rewardTableSize;
+
+
+    public ParallelTrainingEngine() {
+        this(BoardGeometry.STANDARD);
+    }
+
+    public ParallelTrainingEngine(BoardGeometry geometry) {
+        this(Runtime.getRuntime().availableProcessors(), TrainingEngine.DEFAULT_MAX_TRAINING_GAMES, geometry);
+    }
+
+    public ParallelTrainingEngine(int workerCount, long maxTrainingGames) {
+        this(workerCount, maxTrainingGames, BoardGeometry.STANDARD);
+    }
+
+    public ParallelTrainingEngine(int workerCount, long maxTrainingGames, BoardGeometry geometry) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("Need at least one training worker, got " + workerCount);
+        }
+        this.workerCount = workerCount;
+        this.maxTrainingGames = maxTrainingGames;
+        this.geometry = geometry;
+
+        // A game can add the board before each of its plies and the finished board
+        long reachableBoards = geometry.equals(BoardGeometry.STANDARD) ? REWARD_TABLE_SIZE
+            : maxTrainingGames * (geometry.getCells() + 1);
+        if (reachableBoards > MAX_REWARD_TABLE_SIZE) {
+            throw new IllegalArgumentException("Parallel training of " + maxTrainingGames + " games on " + geometry
+                + " boards could store " + reachableBoards + " boards, more than the shared table's limit of "
+                + MAX_REWARD_TABLE_SIZE + "; train fewer games or train single-threaded");
+        }
+        rewardTableSize = (int) reachableBoards;
+    }
+
+
+    public BoardRewards train() {
+        BoardRewards boardRewards = new BoardRewards(geometry, new ConcurrentRewardTable(rewardTableSize));
+        SplittableRandom rootRandom = new SplittableRandom();
+
+        long gamesPerWorker = maxTrainingGames / workerCount;
+        // Reach the same exploratory rate after gamesPerWorker games that one engine reaches after maxTrainingGames
+        double workerDecayRate = Math.pow(TrainingEngine.EXPLORATORY_DECAY_RATE, workerCount);
+
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount);
+        try {
+            long startNanos = System.nanoTime();
+
+            List<Future<Long>> workers = new ArrayList<>();
+            for (int i = 0; i < workerCount; i++) {
+                TrainingEngine worker = new TrainingEngine(boardRewards, rootRandom.split(), gamesPerWorker, workerDecayRate);
+                workers.add(executor.submit(() -> worker.playTrainingGames()));
+            }
+
+            long gamesPlayed = 0;
+            for (Future<Long> worker : workers) {
+                gamesPlayed += worker.get();
+            }
+
+            double seconds = (System.nanoTime() - startNanos) / 1e9;
+            System.out.printf("Trained %d games on %d workers in %.3f s (%.0f games/s), %d boards%n",
+                gamesPlayed, workerCount, seconds, gamesPlayed / seconds, boardRewards.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while training", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Training worker failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return boardRewards;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,125 @@
+package com.github.davenedde.gameengine;
+
+/**
+ * Immutable copy of {@link BoardRewards} for playing games.
+ * <p>
+ * Lookups never store anything: a board that was not in the rewards when the snapshot was taken reads as the
+ * default reward.  All fields are final and the arrays are never written after construction, so one snapshot can be
+ * shared by any number of threads without locking.  Entries are kept in an open-addressing table of primitive arrays
+ * sized for the rewards it was built from.
+ */
+final class PolicySnapshot {
+    /** Key used to mark an empty slot.  A real entry with this key is kept in the hasFreeKey/freeKeyValue fields */
+    private static final long FREE_KEY = 0L;
+
+    private final BoardGeometry geometry;
+
+    private final long[] keys;
+    private final double[] values;
+    private final int mask;
+    private final int size;
+
+    private final boolean hasFreeKey;
+    private final double freeKeyValue;
+
+
+    /** Copy the current rewards.  Later changes to boardRewards are not seen by the snapshot */
+    PolicySnapshot(BoardRewards boardRewards) {
+        Loader loader = new Loader(RewardTable.tableSizeFor(boardRewards.size()));
+        boardRewards.forEachReward(loader);
+
+        geometry = boardRewards.getGeometry();
+        keys = loader.keys;
+        values = loader.values;
+        mask = keys.length - 1;
+        size = loader.size + (loader.hasFreeKey ? 1 : 0);
+        hasFreeKey = loader.hasFreeKey;
+        freeKeyValue = loader.freeKeyValue;
+    }
+
+
+    /** Shape of the boards the rewards were trained on */
+    public BoardGeometry getGeometry() {
+        return geometry;
+    }
+
+    /** Return the reward for the currentPlayer (about to play a move) of the specified board */
+    public double getRewardCurrentPlayer(Board board) {
+        return getRewardCurrentPlayer(board.getCanonicalKey());
+    }
+
+    /** Same as {@link #getRewardCurrentPlayer(Board)} for a board already reduced to its canonical key */
+    double getRewardCurrentPlayer(long canonicalKey) {
+        if (canonicalKey == FREE_KEY) {
+            return hasFreeKey ? freeKeyValue : BoardRewards.DEFAULT_REWARD;
+        }
+
+        int slot = RewardTable.hash(canonicalKey) & mask;
+        for (long key = keys[slot]; key != FREE_KEY; key = keys[slot]) {
+            if (key == canonicalKey) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return BoardRewards.DEFAULT_REWARD;
+    }
+
+    /** Return the reward for the non-currentPlayer (just played a move) of the specified board */
+    public double getRewardOtherPlayer(Board board) {
+        return 1.0 - getRewardCurrentPlayer(board);
+    }
+
+    /** Return the move with the highest reward for the player about to move, or null if the board is full */
+    public Position getBestMove(Board board) {
+        Position bestMove = null;
+        double maxValue = -Double.MAX_VALUE;
+        for (long emptyMask = board.getEmptyMask(); emptyMask != 0; emptyMask &= emptyMask - 1) {
+            Position move = board.getGeometry().getLowestPosition(emptyMask);
+            double moveValue = 1.0 - getRewardCurrentPlayer(board.getCanonicalKeyAfterMove(move));
+            if (moveValue > maxValue) {
+                maxValue = moveValue;
+                bestMove = move;
+            }
+        }
+        return bestMove;
+    }
+
+    public int size() {
+        return size;
+    }
+
+
+    /** Fills the arrays of a new snapshot; discarded once the snapshot is constructed */
+    private static class Loader implements RewardStore.EntryConsumer {
+        final long[] keys;
+        final double[] values;
+        int size;
+        boolean hasFreeKey;
+        double freeKeyValue;
+
+        Loader(int capacity) {
+            keys = new long[capacity];
+            values = new double[capacity];
+        }
+
+        @Override
+        public void accept(long key, double value) {
+            if (key == FREE_KEY) {
+                hasFreeKey = true;
+                freeKeyValue = value;
+                return;
+            }
+
+            int mask = keys.length - 1;
+            int slot = RewardTable.hash(key) & mask;
+            while (keys[slot] != FREE_KEY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == FREE_KEY) {
+                size++;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+        }
+    }
+}
\ No newline at end of file
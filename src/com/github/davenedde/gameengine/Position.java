@@ -3,14 +3,28 @@ package com.github.davenedde.gameengine;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
-/** A position on the game board */
+/**
+ * A position on the game board.
+ * <p>
+ * Positions are numbered from 1, row-by-row from the upper-left, so the number depends on the width of the board.
+ * {@link BoardGeometry#getPosition(int)} returns the shared instance for each space of a board; the static methods here
+ * number positions on the {@link BoardGeometry#STANDARD standard} 3x3 board.
+ */
 class Position implements Comparable<Position> {
     private final int row;
     private final int col;
+    private final int positionNumber;
 
+    /** A position on the standard board */
     public Position(int row, int col) {
+        this(row, col, BoardGeometry.STANDARD.getCols());
+    }
+
+    /** A position on a board with the given number of columns */
+    Position(int row, int col, int cols) {
         this.row = row;
         this.col = col;
+        this.positionNumber = col + 1 + row * cols;
     }
 
     public int getRow() { return row; }
@@ -27,43 +41,33 @@ class Position implements Comparable<Position> {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Position position = (Position) o;
-        return toPositionNumber() == position.toPositionNumber();
+        return row == position.row && col == position.col;
     }
 
     public static Position fromString(String positionString) {
-        int positionNumber = Integer.parseInt(positionString);
-        return new Position(positionToRow(positionNumber), positionToCol(positionNumber));
+        return fromPositionNumber(Integer.parseInt(positionString));
     }
 
-    /** Convert a value from 1..9 for each position on the board, starting from upper-left in a row-by-row ordering to a Position */
+    /** Convert a value from 1..9 for each position on the standard board, starting from upper-left in a row-by-row ordering to a Position */
     static Position fromPositionNumber(int positionNumber) {
-        return new Position(positionToRow(positionNumber), positionToCol(positionNumber));
+        return BoardGeometry.STANDARD.getPosition(positionNumber);
     }
 
     @Override
     public int hashCode() {
-        return toPositionNumber();
+        return row * 31 + col;
     }
 
-    /** Return a value from 1..9 for each position on the board, starting from upper-left in a row-by-row ordering */
+    /** Return a value from 1 for each position on the board, starting from upper-left in a row-by-row ordering */
     int toPositionNumber() {
-        return col + 1 + row * Board.COLS;
+        return positionNumber;
     }
 
     public static Stream<Position> stream() {
-        return IntStream.range(1, Board.ROWS * Board.COLS + 1)
+        return IntStream.range(1, BoardGeometry.STANDARD.getCells() + 1)
             .mapToObj(Position::fromPositionNumber);
     }
 
-
-    static private int positionToRow(int positionNumber) {
-        return (positionNumber - 1) / Board.COLS;
-    }
-
-    static private int positionToCol(int positionNumber) {
-        return positionNumber - (positionToRow(positionNumber) * Board.COLS) - 1;
-    }
-
     @Override
     public int compareTo(Position o) {
         return toPositionNumber() - o.toPositionNumber();
@@ -0,0 +1,190 @@
+package com.github.davenedde.gameengine;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map like {@link RewardTable} whose rewards are stored as 16-bit fixed point instead of doubles.
+ * <p>
+ * Every reward lies in [0, 1], so it is held as a char level out of {@value #LEVELS}, a resolution of about 1.5e-5.
+ * An entry costs 10 bytes instead of 16, and the value array is a quarter of the size, so more of the table stays in
+ * cache.  The number of levels is even so the default 0.5 and the terminal rewards 0, 0.5 and 1 are exact.  Values
+ * outside [0, 1] are clamped.
+ * <p>
+ * Backups round stochastically: a step smaller than one level moves the reward up a level with probability in
+ * proportion to its size, instead of being rounded away.  The expected stored value then follows the full-precision
+ * update, and late small backups still have an effect.
+ */
+class QuantizedRewardTable implements RewardStore {
+    private static final int DEFAULT_EXPECTED_SIZE = 1024;
+
+    /** Stored levels run 0..LEVELS, mapping onto rewards 0..1 */
+    static final int LEVELS = 0xFFFE;
+
+    /** Key used to mark an empty slot.  A real entry with this key is kept in the hasFreeKey/freeKeyValue fields */
+    private static final long FREE_KEY = 0L;
+
+    private long[] keys;
+    private char[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    private boolean hasFreeKey;
+    private char freeKeyValue;
+
+    /** xorshift state for stochastic rounding.  The table is single-threaded, so it needs no shared generator */
+    private long roundingState = 0x2545F4914F6CDD1DL;
+
+
+    public QuantizedRewardTable() {
+        this(DEFAULT_EXPECTED_SIZE);
+    }
+
+    public QuantizedRewardTable(int expectedSize) {
+        allocate(RewardTable.tableSizeFor(expectedSize));
+    }
+
+
+    @Override
+    public int size() {
+        return size + (hasFreeKey ? 1 : 0);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, FREE_KEY);
+        size = 0;
+        hasFreeKey = false;
+    }
+
+    @Override
+    public double getOrDefault(long key, double defaultValue) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? toReward(freeKeyValue) : defaultValue;
+        }
+
+        int slot = findSlot(key);
+        return keys[slot] != FREE_KEY ? toReward(values[slot]) : defaultValue;
+    }
+
+    @Override
+    public double computeIfAbsent(long key, double defaultValue) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                freeKeyValue = toLevel(defaultValue);
+            }
+            return toReward(freeKeyValue);
+        }
+
+        int slot = findSlot(key);
+        if (keys[slot] != FREE_KEY) {
+            return toReward(values[slot]);
+        }
+
+        char level = toLevel(defaultValue);
+        insert(slot, key, level);
+        return toReward(level);
+    }
+
+    @Override
+    public void put(long key, double value) {
+        putLevel(key, toLevel(value));
+    }
+
+    @Override
+    public void moveToward(long key, double target, double rate, double defaultValue) {
+        double current = computeIfAbsent(key, defaultValue);
+        putLevel(key, toLevelStochastic(current + rate * (target - current)));
+    }
+
+    @Override
+    public void forEach(EntryConsumer consumer) {
+        if (hasFreeKey) {
+            consumer.accept(FREE_KEY, toReward(freeKeyValue));
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != FREE_KEY) {
+                consumer.accept(keys[slot], toReward(values[slot]));
+            }
+        }
+    }
+
+
+    static double toReward(char level) {
+        return level * (1.0 / LEVELS);
+    }
+
+    /** Round to the nearest level */
+    static char toLevel(double reward) {
+        return (char) Math.round(clamp(reward) * LEVELS);
+    }
+
+    /** Round down or up to a neighbouring level, up with probability equal to the fraction between them */
+    private char toLevelStochastic(double reward) {
+        roundingState ^= roundingState << 13;
+        roundingState ^= roundingState >>> 7;
+        roundingState ^= roundingState << 17;
+        double uniform = (roundingState >>> 11) * 0x1.0p-53;
+
+        return (char) Math.min((int) (clamp(reward) * LEVELS + uniform), LEVELS);
+    }
+
+    private static double clamp(double reward) {
+        return reward > 0.0 ? Math.min(reward, 1.0) : 0.0;
+    }
+
+    private void putLevel(long key, char level) {
+        if (key == FREE_KEY) {
+            hasFreeKey = true;
+            freeKeyValue = level;
+            return;
+        }
+
+        int slot = findSlot(key);
+        if (keys[slot] != FREE_KEY) {
+            values[slot] = level;
+        } else {
+            insert(slot, key, level);
+        }
+    }
+
+    /** Return the slot holding the key, or the empty slot where it would be inserted */
+    private int findSlot(long key) {
+        int slot = RewardTable.hash(key) & mask;
+        while (keys[slot] != FREE_KEY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insert(int slot, long key, char level) {
+        keys[slot] = key;
+        values[slot] = level;
+        if (++size > resizeThreshold) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        char[] oldValues = values;
+
+        allocate(newCapacity);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE_KEY) {
+                int slot = findSlot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new char[capacity];
+        mask = capacity - 1;
+        resizeThreshold = capacity / 2;
+    }
+}
\ No newline at end of file
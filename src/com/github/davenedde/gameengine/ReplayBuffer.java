@@ -0,0 +1,143 @@
+package com.github.davenedde.gameengine;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.random.RandomGenerator;
+
+/**
+ * Ring buffer of recorded training games, so each game can be learned from more than once.
+ * <p>
+ * Trajectories are stored off-heap in one direct buffer with a fixed stride: the number of plies, the position
+ * number of each move, then the canonical key of every board from the first to the final one.  Once full, the oldest
+ * game is overwritten.
+ * <p>
+ * Games are sampled either uniformly or in proportion to their priority, the largest TD error seen the last time the
+ * game was replayed.  New games get the highest priority seen so far so each is replayed at least once soon.
+ * Priorities live in a sum tree, so prioritized sampling and updates are O(log capacity).
+ */
+class ReplayBuffer {
+    enum Sampling { UNIFORM, PRIORITIZED }
+
+    /** Games kept: about 1.5 MB off-heap for the standard board */
+    static final int DEFAULT_CAPACITY = 1 << 14;
+    /** Games replayed after each training game */
+    static final int DEFAULT_BATCH_SIZE = 4;
+
+    /** Keeps games whose backups no longer change anything from never being replayed again */
+    private static final double MIN_PRIORITY = 1e-3;
+
+    private static final int MOVES_OFFSET = 1;
+
+    /** Longest game stored: one move per space */
+    private final int maxLength;
+    /** Keys start at the first 8 byte boundary after the moves */
+    private final int keysOffset;
+    private final int stride;
+
+    private final ByteBuffer trajectories;
+    private final int capacity;
+    private final Sampling sampling;
+
+    /** Sum tree: node i is the sum of nodes 2i and 2i+1; the priority of slot s is leaf capacity + s */
+    private final double[] priorityTree;
+    private double maxPriority = 1.0;
+
+    private long added;
+
+
+    public ReplayBuffer(int capacity, Sampling sampling) {
+        this(BoardGeometry.STANDARD, capacity, sampling);
+    }
+
+    /** A buffer for games on boards of the given shape */
+    public ReplayBuffer(BoardGeometry geometry, int capacity, Sampling sampling) {
+        maxLength = geometry.getCells();
+        keysOffset = (MOVES_OFFSET + maxLength + Long.BYTES - 1) / Long.BYTES * Long.BYTES;
+        stride = keysOffset + (maxLength + 1) * Long.BYTES;
+
+        if (Integer.bitCount(capacity) != 1 || (long) capacity * stride > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Replay capacity must be a power of two that fits in one buffer, got " + capacity);
+        }
+        this.capacity = capacity;
+        this.sampling = sampling;
+        trajectories = ByteBuffer.allocateDirect(capacity * stride).order(ByteOrder.nativeOrder());
+        priorityTree = new double[2 * capacity];
+    }
+
+
+    /**
+     * Record a game of length plies.
+     * boardKeys[ply] is the canonical key of the board before each move, plus the final board; moves[ply] the position played.
+     */
+    public void add(long[] boardKeys, byte[] moves, int length) {
+        int slot = (int) (added++ & (capacity - 1));
+        int base = slot * stride;
+
+        trajectories.put(base, (byte) length);
+        for (int ply = 0; ply < length; ply++) {
+            trajectories.put(base + MOVES_OFFSET + ply, moves[ply]);
+        }
+        for (int ply = 0; ply <= length; ply++) {
+            trajectories.putLong(base + keysOffset + ply * Long.BYTES, boardKeys[ply]);
+        }
+
+        setPriority(slot, maxPriority);
+    }
+
+    /** Number of moves in the longest game that fits */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /** Number of games currently held */
+    public int size() {
+        return (int) Math.min(added, capacity);
+    }
+
+    /** Pick the slot of a stored game.  The buffer must not be empty */
+    public int sample(RandomGenerator random) {
+        if (sampling == Sampling.UNIFORM) {
+            return random.nextInt(size());
+        }
+
+        double target = random.nextDouble() * priorityTree[1];
+        int node = 1;
+        while (node < capacity) {
+            node *= 2;
+            if (target >= priorityTree[node] && priorityTree[node + 1] > 0) {
+                target -= priorityTree[node];
+                node++;
+            }
+        }
+        return node - capacity;
+    }
+
+    public int getLength(int slot) {
+        return trajectories.get(slot * stride);
+    }
+
+    public byte getMove(int slot, int ply) {
+        return trajectories.get(slot * stride + MOVES_OFFSET + ply);
+    }
+
+    /** Canonical key of the board before the given ply; ply == length is the final board */
+    public long getBoardKey(int slot, int ply) {
+        return trajectories.getLong(slot * stride + keysOffset + ply * Long.BYTES);
+    }
+
+    /** Record the largest TD error from replaying the game in slot */
+    public void updatePriority(int slot, double tdError) {
+        double priority = Math.max(tdError, MIN_PRIORITY);
+        maxPriority = Math.max(maxPriority, priority);
+        setPriority(slot, priority);
+    }
+
+
+    private void setPriority(int slot, double priority) {
+        int node = capacity + slot;
+        double change = priority - priorityTree[node];
+        for (; node >= 1; node /= 2) {
+            priorityTree[node] += change;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,118 @@
+package com.github.davenedde.gameengine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary snapshot of a trained BoardRewards, so a model can be loaded instead of retrained.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ *   int    magic "TTTR"
+ *   int    format version
+ *   int    board rows
+ *   int    board columns
+ *   int    marks in a row needed to win (from version 2; version 1 files are 3x3 tic-tac-toe)
+ *   long   entry count
+ *   entries: long canonical board key, double reward for the current player
+ * </pre>
+ * Files are written through a FileChannel in large blocks and read back through a memory mapping.
+ */
+class RewardSnapshot {
+    private static final int MAGIC = 0x54545452; // "TTTR"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 4 + 4 + 8;
+    private static final int VERSION_1_HEADER_BYTES = HEADER_BYTES - 4;
+    private static final int ENTRY_BYTES = 8 + 8;
+
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+
+
+    private RewardSnapshot() {
+    }
+
+
+    public static void save(BoardRewards boardRewards, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+            BoardGeometry geometry = boardRewards.getGeometry();
+            buffer.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(geometry.getRows())
+                .putInt(geometry.getCols())
+                .putInt(geometry.getWinLength())
+                .putLong(0); // Entry count, filled in once all entries are written
+
+            long[] entryCount = new long[1];
+            boardRewards.forEachReward((key, value) -> {
+                if (buffer.remaining() < ENTRY_BYTES) {
+                    writeFully(channel, buffer);
+                }
+                buffer.putLong(key).putDouble(value);
+                entryCount[0]++;
+            });
+            writeFully(channel, buffer);
+
+            buffer.putLong(entryCount[0]).flip();
+            channel.write(buffer, HEADER_BYTES - 8);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public static BoardRewards load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.remaining() < VERSION_1_HEADER_BYTES || buffer.getInt() != MAGIC) {
+                throw new IOException(path + " is not a reward snapshot");
+            }
+            int version = buffer.getInt();
+            if (version != 1 && version != VERSION) {
+                throw new IOException("Unsupported reward snapshot version " + version + " in " + path);
+            }
+            if (version == VERSION && buffer.capacity() < HEADER_BYTES) {
+                throw new IOException("Reward snapshot " + path + " is truncated or corrupt");
+            }
+            int rows = buffer.getInt();
+            int cols = buffer.getInt();
+            int winLength = version == 1 ? BoardGeometry.STANDARD.getWinLength() : buffer.getInt();
+            BoardGeometry geometry;
+            try {
+                geometry = new BoardGeometry(rows, cols, winLength);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Reward snapshot " + path + " has an invalid board: " + e.getMessage());
+            }
+            long entryCount = buffer.getLong();
+            if (entryCount < 0 || entryCount > Integer.MAX_VALUE || buffer.remaining() != entryCount * ENTRY_BYTES) {
+                throw new IOException("Reward snapshot " + path + " is truncated or corrupt");
+            }
+
+            RewardTable rewardTable = new RewardTable((int) entryCount);
+            for (long i = 0; i < entryCount; i++) {
+                rewardTable.put(buffer.getLong(), buffer.getDouble());
+            }
+            return new BoardRewards(geometry, rewardTable);
+        }
+    }
+
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.github.davenedde.gameengine;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Storage for board rewards keyed by a long board key.
+ * BoardRewards decides which key and default to use; implementations decide how the values are held.
+ */
+interface RewardStore extends Closeable {
+    /** Receives one stored entry at a time, without boxing */
+    interface EntryConsumer {
+        void accept(long key, double value);
+    }
+
+    int size();
+
+    void clear();
+
+    /** Return the value stored for the key, or defaultValue without storing it */
+    double getOrDefault(long key, double defaultValue);
+
+    /** Return the value stored for the key, storing and returning defaultValue if the key is new */
+    double computeIfAbsent(long key, double defaultValue);
+
+    void put(long key, double value);
+
+    /**
+     * Move the value stored for the key (defaultValue if new) the given fraction of the way toward target.
+     * Concurrent implementations apply this atomically so simultaneous backups are not lost.
+     */
+    void moveToward(long key, double target, double rate, double defaultValue);
+
+    /** Pass every stored entry to the consumer, in no particular order */
+    void forEach(EntryConsumer consumer);
+
+    /** Release anything held outside the heap, such as a {@link MappedRewardStore}'s scratch file.  Heap stores hold nothing */
+    @Override
+    default void close() throws IOException {
+    }
+}
\ No newline at end of file
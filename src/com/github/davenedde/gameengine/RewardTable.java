@@ -0,0 +1,172 @@
+package com.github.davenedde.gameengine;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from a long board key to a double reward.
+ * <p>
+ * Keys and values live in parallel primitive arrays with linear probing, so lookups never box
+ * and each entry costs 16 bytes instead of a HashMap node, a Board and a Double.
+ * The table doubles whenever it becomes half full, so it keeps working for state spaces much larger than 3x3.
+ */
+class RewardTable implements RewardStore {
+    private static final int DEFAULT_EXPECTED_SIZE = 1024;
+
+    /** Key used to mark an empty slot.  A real entry with this key is kept in the hasFreeKey/freeKeyValue fields */
+    private static final long FREE_KEY = 0L;
+
+    private long[] keys;
+    private double[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    private boolean hasFreeKey;
+    private double freeKeyValue;
+
+
+    public RewardTable() {
+        this(DEFAULT_EXPECTED_SIZE);
+    }
+
+    public RewardTable(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+
+    @Override
+    public int size() {
+        return size + (hasFreeKey ? 1 : 0);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, FREE_KEY);
+        size = 0;
+        hasFreeKey = false;
+    }
+
+    public boolean containsKey(long key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey;
+        }
+        return keys[findSlot(key)] != FREE_KEY;
+    }
+
+    @Override
+    public double getOrDefault(long key, double defaultValue) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? freeKeyValue : defaultValue;
+        }
+
+        int slot = findSlot(key);
+        return keys[slot] != FREE_KEY ? values[slot] : defaultValue;
+    }
+
+    @Override
+    public double computeIfAbsent(long key, double defaultValue) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                freeKeyValue = defaultValue;
+            }
+            return freeKeyValue;
+        }
+
+        int slot = findSlot(key);
+        if (keys[slot] != FREE_KEY) {
+            return values[slot];
+        }
+
+        insert(slot, key, defaultValue);
+        return defaultValue;
+    }
+
+    @Override
+    public void put(long key, double value) {
+        if (key == FREE_KEY) {
+            hasFreeKey = true;
+            freeKeyValue = value;
+            return;
+        }
+
+        int slot = findSlot(key);
+        if (keys[slot] != FREE_KEY) {
+            values[slot] = value;
+        } else {
+            insert(slot, key, value);
+        }
+    }
+
+    @Override
+    public void moveToward(long key, double target, double rate, double defaultValue) {
+        double current = computeIfAbsent(key, defaultValue);
+        put(key, current + rate * (target - current));
+    }
+
+    @Override
+    public void forEach(EntryConsumer consumer) {
+        if (hasFreeKey) {
+            consumer.accept(FREE_KEY, freeKeyValue);
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != FREE_KEY) {
+                consumer.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+
+    /** Return the slot holding the key, or the empty slot where it would be inserted */
+    private int findSlot(long key) {
+        int slot = hash(key) & mask;
+        while (keys[slot] != FREE_KEY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insert(int slot, long key, double value) {
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeThreshold) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        double[] oldValues = values;
+
+        allocate(newCapacity);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE_KEY) {
+                int slot = findSlot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new double[capacity];
+        mask = capacity - 1;
+        resizeThreshold = capacity / 2;
+    }
+
+    /** Spread the key bits so that keys differing only in high bits do not collide */
+    static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32));
+    }
+
+    static int tableSizeFor(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 2) * 2 - 1) * 2;
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Reward table too large for " + expectedSize + " entries");
+        }
+        return capacity;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,84 @@
+package com.github.davenedde.gameengine;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Boltzmann exploration: play each move with probability proportional to exp(reward / temperature).
+ * <p>
+ * Unlike epsilon-greedy, exploratory moves favour moves that already look good, and clearly losing moves are rarely
+ * retried.  The temperature decays each game toward a floor, so play becomes greedy as the rewards settle.
+ * <a href="https://en.wikipedia.org/wiki/Softmax_function">Softmax function</a>
+ * <p>
+ * Rewards and cumulative weights live in arrays preallocated per strategy, and the move is drawn by a linear scan of
+ * the cumulative sums, so choosing a move does not allocate.
+ */
+class SoftmaxExploration implements ExplorationStrategy {
+    static final double DEFAULT_STARTING_TEMPERATURE = 0.5;
+    static final double DEFAULT_DECAY_RATE = 0.99998;
+    static final double DEFAULT_MINIMUM_TEMPERATURE = 0.01;
+
+    private final double startingTemperature;
+    private final double decayRate;
+    private final double minimumTemperature;
+    private double temperature;
+
+    /** Sized for the largest board, so one strategy works for any {@link BoardGeometry} */
+    private final long[] moves = new long[BoardGeometry.MAX_CELLS];
+    private final double[] cumulativeWeights = new double[BoardGeometry.MAX_CELLS];
+
+
+    public SoftmaxExploration() {
+        this(DEFAULT_STARTING_TEMPERATURE, DEFAULT_DECAY_RATE, DEFAULT_MINIMUM_TEMPERATURE);
+    }
+
+    public SoftmaxExploration(double startingTemperature, double decayRate, double minimumTemperature) {
+        this.startingTemperature = startingTemperature;
+        this.decayRate = decayRate;
+        this.minimumTemperature = minimumTemperature;
+        this.temperature = startingTemperature;
+    }
+
+
+    @Override
+    public void reset() {
+        temperature = startingTemperature;
+    }
+
+    @Override
+    public void endGame() {
+        temperature = Math.max(temperature * decayRate, minimumTemperature);
+    }
+
+    @Override
+    public double getRate() {
+        return temperature;
+    }
+
+    @Override
+    public long explore(long emptyMask, MoveValues moveValues, RandomGenerator random) {
+        int moveCount = 0;
+        double maxReward = -Double.MAX_VALUE;
+        for (; emptyMask != 0; emptyMask &= emptyMask - 1) {
+            long move = Long.lowestOneBit(emptyMask);
+            double reward = moveValues.getMoveValue(move);
+            moves[moveCount] = move;
+            cumulativeWeights[moveCount] = reward;
+            maxReward = Math.max(maxReward, reward);
+            moveCount++;
+        }
+
+        // Subtracting the best reward keeps exp() in range at low temperatures without changing the probabilities
+        double sum = 0;
+        for (int i = 0; i < moveCount; i++) {
+            sum += Math.exp((cumulativeWeights[i] - maxReward) / temperature);
+            cumulativeWeights[i] = sum;
+        }
+
+        double target = random.nextDouble() * sum;
+        int chosen = 0;
+        while (chosen < moveCount - 1 && cumulativeWeights[chosen] <= target) {
+            chosen++;
+        }
+        return moves[chosen];
+    }
+}
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.github.davenedde.gameengine;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Perfect player for {@link Tournament} games on the standard board.
+ * <p>
+ * {@link NegamaxSolver} keeps a mutable transposition table, so instead of searching during games the whole game is
+ * solved once up front: for every reachable board, in every orientation, the moves with the best exact score are
+ * stored as a bit mask indexed by the board's {@link Board#getKey() key}.  The masks are read-only afterwards, so one
+ * agent can be shared by every thread.
+ */
+class SolverAgent implements Agent {
+    /** Bit (position number - 1) set for each best move, indexed by board key; 0 for finished or unreachable boards */
+    private final short[] bestMoveMasks = new short[BestMoveTable.STATE_COUNT];
+
+
+    SolverAgent() {
+        NegamaxSolver solver = new NegamaxSolver();
+        boolean[] visited = new boolean[BestMoveTable.STATE_COUNT];
+        solve(solver, new Board(Player.X), visited);
+        solve(solver, new Board(Player.O), visited);
+    }
+
+    private void solve(NegamaxSolver solver, Board board, boolean[] visited) {
+        int state = (int) board.getKey();
+        if (visited[state]) {
+            return;
+        }
+        visited[state] = true;
+
+        if (board.getWinner().isPresent()) {
+            return;
+        }
+
+        int bestScore = Integer.MIN_VALUE;
+        int bestMask = 0;
+        for (long emptyMask = board.getEmptyMask(); emptyMask != 0; emptyMask &= emptyMask - 1) {
+            int cell = Long.numberOfTrailingZeros(emptyMask);
+            Board child = board.playMove(Position.fromPositionNumber(cell + 1));
+            int score = -solver.getScore(child);
+            if (score > bestScore) {
+                bestScore = score;
+                bestMask = 1 << cell;
+            } else if (score == bestScore) {
+                bestMask |= 1 << cell;
+            }
+            solve(solver, child, visited);
+        }
+        bestMoveMasks[state] = (short) bestMask;
+    }
+
+
+    @Override
+    public Position chooseMove(Board board, RandomGenerator random) {
+        int bestMask = bestMoveMasks[(int) board.getKey()];
+        for (int skip = random.nextInt(Integer.bitCount(bestMask)); skip > 0; skip--) {
+            bestMask &= bestMask - 1;
+        }
+        return Position.fromPositionNumber(Integer.numberOfTrailingZeros(bestMask) + 1);
+    }
+}
\ No newline at end of file
@@ -8,26 +8,299 @@ $JAVA_HOME/bin/java com.github.davenedde.gameengine.TicTacToe
 
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 import java.util.Scanner;
-
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Play against the computer.
+ * <p>
+ * The trained model is saved to {@value #MODEL_FILE} and loaded on later runs instead of retraining.
+ * Options: {@code --train} retrains and overwrites the saved model, {@code --parallel} trains on every core,
+ * {@code --softmax} explores with {@link SoftmaxExploration} instead of random moves while training,
+ * {@code --replay} also learns from earlier games kept in a {@link ReplayBuffer},
+ * {@code --log-games} records every training game in {@value #GAME_LOG_FILE}, and {@code --game-stats} summarizes
+ * that log with {@link GameLogStats} instead of playing,
+ * {@code --solve} skips training and fills the rewards with exact values from {@link NegamaxSolver},
+ * {@code --value-iteration} trains with {@link ValueIterationEngine} instead of self-play,
+ * {@code --compiled} picks computer moves from a precompiled {@link BestMoveTable},
+ * {@code --serve} hosts games over TCP with {@link GameServer} instead of playing on the console,
+ * {@code --load-test} runs the server against {@link GameLoadClient} and reports move latency,
+ * {@code --evaluate} plays the model against other agents in a {@link Tournament} and reports win/draw/loss rates,
+ * {@code --live} starts playing at once while a new model trains in the background and is swapped in through a
+ * {@link LivePolicy} as it improves, and
+ * {@code --mapped} keeps the rewards being trained off the heap in a {@link MappedRewardStore}, or
+ * {@code --quantized} stores them as 16-bit fixed point in a {@link QuantizedRewardTable}.
+ * {@code --ntuple} trains an {@link NTupleNetwork} value function instead of a reward table and plays from it,
+ * exploring with softmax too if {@code --softmax} is given.
+ * {@code --mcts} needs no training: each computer move is a {@link MonteCarloTreeSearch} with a fixed time budget,
+ * valuing leaves with the saved model if there is one.
+ * <p>
+ * {@code --board=m,n,k} plays k in a row on an m x n board instead, e.g. {@code --board=4,4,3}, with its own model
+ * file.  Options that need the whole state space or the 3x3 wire and log formats only work on the standard board.
+ */
 public class TicTacToe {
     //private static final int TRAIN_COUNT = 500_000;
+
+    static final String MODEL_FILE = "rewards.model";
+    static final String GAME_LOG_FILE = "games.log";
+
+    private static final String BOARD_OPTION = "--board=";
+    /** Options that are only supported on the standard board */
+    private static final List<String> STANDARD_BOARD_OPTIONS = List.of(
+        "--solve", "--value-iteration", "--compiled", "--evaluate", "--serve", "--load-test", "--log-games");
+
+    /** Options of the single-threaded self-play TrainingEngine, which the other ways of getting a model never use */
+    private static final List<String> SELF_PLAY_OPTIONS = List.of("--mapped", "--quantized", "--softmax", "--replay", "--log-games");
+    private static final List<String> OTHER_TRAINING_OPTIONS = List.of("--solve", "--value-iteration", "--parallel", "--live");
+
+    private static final int LOAD_TEST_SESSIONS = 2000;
+    private static final int LOAD_TEST_GAMES_PER_SESSION = 100;
+    private static final long EVALUATION_GAMES_PER_MATCH = 1_000_000;
     
     public static void main(String[] args) throws IOException {
         System.out.println("Tic Tac Toe\n");
 
-        TrainingEngine trainingEngine = new TrainingEngine();
-        BoardRewards boardRewards = trainingEngine.train();
+        List<String> options = Arrays.asList(args);
+
+        if (options.contains("--game-stats")) {
+            long startNanos = System.nanoTime();
+            GameLogStats stats = GameLogStats.of(Paths.get(GAME_LOG_FILE));
+            stats.print();
+            System.out.printf("Read %d games in %.1f ms%n", stats.getGames(), (System.nanoTime() - startNanos) / 1e6);
+            return;
+        }
+
+        BoardGeometry geometry = options.stream()
+            .filter(option -> option.startsWith(BOARD_OPTION))
+            .map(option -> BoardGeometry.parse(option.substring(BOARD_OPTION.length())))
+            .findFirst()
+            .orElse(BoardGeometry.STANDARD);
+        if (!geometry.equals(BoardGeometry.STANDARD)) {
+            for (String option : STANDARD_BOARD_OPTIONS) {
+                if (options.contains(option)) {
+                    System.out.println(option + " is only supported on the standard 3x3 board");
+                    return;
+                }
+            }
+        }
+
+        if (options.contains("--mapped") && options.contains("--quantized")) {
+            System.out.println("--mapped and --quantized cannot be combined");
+            return;
+        }
+        for (String selfPlayOption : SELF_PLAY_OPTIONS) {
+            for (String trainingOption : OTHER_TRAINING_OPTIONS) {
+                if (options.contains(selfPlayOption) && options.contains(trainingOption)) {
+                    System.out.println(selfPlayOption + " and " + trainingOption + " cannot be combined");
+                    return;
+                }
+            }
+        }
+        if (options.contains("--live") && options.contains("--compiled")) {
+            // A compiled table cannot follow live updates
+            System.out.println("--live and --compiled cannot be combined");
+            return;
+        }
+
+        if (options.contains("--ntuple")) {
+            // A network is small and quick to train, so it is retrained every run instead of saved
+            NTupleTrainingEngine trainingEngine = options.contains("--softmax")
+                ? new NTupleTrainingEngine(new NTupleNetwork(geometry), new Random(), TrainingEngine.DEFAULT_MAX_TRAINING_GAMES, new SoftmaxExploration())
+                : new NTupleTrainingEngine(new NTupleNetwork(geometry), new Random(), TrainingEngine.DEFAULT_MAX_TRAINING_GAMES);
+            NTupleNetwork network = trainingEngine.train();
+            playConsole(geometry, network::getBestMove, network::getRewardOtherPlayer);
+            return;
+        }
+
+        if (options.contains("--mcts")) {
+            MonteCarloTreeSearch search = new MonteCarloTreeSearch(loadPrior(geometry), MonteCarloTreeSearch.DEFAULT_MILLIS_PER_MOVE);
+            playConsole(geometry, board -> {
+                Position move = search.getBestMove(board);
+                System.out.printf("Searched %d playouts, %d nodes%n", search.getPlayouts(), search.getNodeCount());
+                return move;
+            }, board -> board.getWinner().isPresent()
+                // The search keeps no values between moves, so only finished boards have a known reward
+                ? 1.0 - BoardRewards.getTerminalRewardCurrentPlayer(board, board.getWinner().get())
+                : BoardRewards.DEFAULT_REWARD);
+            return;
+        }
+
+        Path modelPath = Paths.get(modelFile(geometry));
+        final PolicySnapshot policy;
+        final LivePolicy livePolicy;
+        // The model is saved by now and everything after reads copies, so release the rewards, e.g. a mapped scratch file
+        try (BoardRewards boardRewards = loadOrTrain(options, geometry, modelPath)) {
+            // Games only read rewards, so play from an immutable copy that lookups cannot grow
+            policy = new PolicySnapshot(boardRewards);
+            livePolicy = new LivePolicy(policy);
+            if (options.contains("--live")) {
+                livePolicy.startTraining(boardRewards, LivePolicy.DEFAULT_PUBLISH_INTERVAL,
+                    trainedRewards -> saveModel(trainedRewards, modelPath));
+            }
+        }
+
+        Function<Board, Position> computerMove = options.contains("--compiled")
+            ? new BestMoveTable(policy)::getBestMove
+            : livePolicy::getBestMove;
+
+        if (options.contains("--evaluate")) {
+            new Tournament().evaluate(policy, EVALUATION_GAMES_PER_MATCH);
+            return;
+        }
+
+        if (options.contains("--serve")) {
+            try (GameServer server = new GameServer(computerMove, GameServer.DEFAULT_PORT)) {
+                System.out.println("Serving games on localhost port " + server.getPort());
+                server.run();
+            }
+            return;
+        }
 
+        if (options.contains("--load-test")) {
+            try (GameServer server = new GameServer(computerMove, 0)) {
+                Thread serverThread = new Thread(server, "game-server");
+                serverThread.start();
+                new GameLoadClient(server.getPort(), LOAD_TEST_SESSIONS, LOAD_TEST_GAMES_PER_SESSION).run();
+            }
+            return;
+        }
+
+        playConsole(geometry, computerMove, board -> livePolicy.get().getRewardOtherPlayer(board));
+    }
+
+    /** Play games against a human on the console until they quit */
+    private static void playConsole(BoardGeometry geometry, Function<Board, Position> computerMove,
+                                    ToDoubleFunction<Board> rewardOtherPlayer) {
         Scanner stdInScanner = new Scanner(System.in);
 
         while (true) {
             Player humanPlayer = getHumanPlayer(stdInScanner);
-            interact(stdInScanner, boardRewards, new Board(Player.X), humanPlayer);
+            interact(stdInScanner, rewardOtherPlayer, computerMove, new Board(geometry, Player.X), humanPlayer);
         }
     }
     
 
+    /** Rewards of the saved model for the board to value search leaves with, or null to use random playouts */
+    private static PolicySnapshot loadPrior(BoardGeometry geometry) {
+        Path modelPath = Paths.get(modelFile(geometry));
+        if (!Files.exists(modelPath)) {
+            System.out.println("No saved model in " + modelPath + ", valuing search leaves by random playouts");
+            return null;
+        }
+        try {
+            BoardRewards boardRewards = RewardSnapshot.load(modelPath);
+            if (boardRewards.getGeometry().equals(geometry)) {
+                System.out.println("Valuing search leaves with " + boardRewards.size() + " board rewards from " + modelPath);
+                return new PolicySnapshot(boardRewards);
+            }
+            System.out.println(modelPath + " is for a " + boardRewards.getGeometry() + " board, valuing search leaves by random playouts");
+        } catch (IOException e) {
+            System.out.println("Could not load " + modelPath + ", valuing search leaves by random playouts: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /** The standard board keeps the original model file name; other boards get one each */
+    private static String modelFile(BoardGeometry geometry) {
+        return geometry.equals(BoardGeometry.STANDARD) ? MODEL_FILE
+            : "rewards-" + geometry.getRows() + "x" + geometry.getCols() + "-" + geometry.getWinLength() + ".model";
+    }
+
+    private static BoardRewards loadOrTrain(List<String> options, BoardGeometry geometry, Path modelPath) throws IOException {
+        if (options.contains("--solve")) {
+            long startNanos = System.nanoTime();
+            BoardRewards boardRewards = new BoardRewards();
+            new NegamaxSolver().fillRewards(boardRewards);
+            System.out.printf("Solved %d board rewards in %.1f ms%n", boardRewards.size(), (System.nanoTime() - startNanos) / 1e6);
+            return boardRewards;
+        }
+
+        if (!options.contains("--train") && Files.exists(modelPath)) {
+            try {
+                long startNanos = System.nanoTime();
+                BoardRewards boardRewards = RewardSnapshot.load(modelPath);
+                if (boardRewards.getGeometry().equals(geometry)) {
+                    System.out.printf("Loaded %d board rewards from %s in %.1f ms%n",
+                        boardRewards.size(), modelPath, (System.nanoTime() - startNanos) / 1e6);
+                    return boardRewards;
+                }
+                System.out.println(modelPath + " is for a " + boardRewards.getGeometry() + " board, retraining");
+            } catch (IOException e) {
+                System.out.println("Could not load " + modelPath + ", retraining: " + e.getMessage());
+            }
+        }
+
+        if (options.contains("--live")) {
+            // Play from the saved model, or from default rewards, until background training publishes a policy
+            return new BoardRewards(geometry);
+        }
+
+        final BoardRewards boardRewards;
+        if (options.contains("--value-iteration")) {
+            // Sweep the whole state space instead of sampling games
+            boardRewards = new ValueIterationEngine().train();
+        } else if (options.contains("--parallel")) {
+            // Self-play on every core into a shared lock-free reward table
+            boardRewards = new ParallelTrainingEngine(geometry).train();
+        } else {
+            TrainingEngine trainingEngine = options.contains("--softmax")
+                // Explore in proportion to how good each move already looks
+                ? new TrainingEngine(newBoardRewards(options, geometry), new Random(), TrainingEngine.DEFAULT_MAX_TRAINING_GAMES, new SoftmaxExploration())
+                : new TrainingEngine(newBoardRewards(options, geometry), new Random(), TrainingEngine.DEFAULT_MAX_TRAINING_GAMES, TrainingEngine.EXPLORATORY_DECAY_RATE);
+            if (options.contains("--replay")) {
+                trainingEngine.setExperienceReplay(
+                    new ReplayBuffer(geometry, ReplayBuffer.DEFAULT_CAPACITY, ReplayBuffer.Sampling.PRIORITIZED), ReplayBuffer.DEFAULT_BATCH_SIZE);
+            }
+            if (options.contains("--log-games")) {
+                try (GameLog.Writer gameLog = new GameLog.Writer(Paths.get(GAME_LOG_FILE))) {
+                    trainingEngine.setGameLog(gameLog);
+                    boardRewards = trainingEngine.train();
+                    System.out.println("Logged " + gameLog.getRecordCount() + " games to " + GAME_LOG_FILE);
+                }
+            } else {
+                boardRewards = trainingEngine.train();
+            }
+        }
+
+        saveModel(boardRewards, modelPath);
+
+        return boardRewards;
+    }
+
+    /**
+     * Empty rewards to train into, in a memory-mapped file in the working directory if --mapped was given, or in
+     * 16-bit fixed point if --quantized was given
+     */
+    private static BoardRewards newBoardRewards(List<String> options, BoardGeometry geometry) throws IOException {
+        if (options.contains("--quantized")) {
+            return new BoardRewards(geometry, new QuantizedRewardTable());
+        }
+        if (!options.contains("--mapped")) {
+            return new BoardRewards(geometry);
+        }
+        // Every training game adds at most one board per space
+        MappedRewardStore rewardStore = new MappedRewardStore(Paths.get("."), TrainingEngine.DEFAULT_MAX_TRAINING_GAMES * geometry.getCells());
+        System.out.printf("Training into a %,d MB memory-mapped reward store%n", rewardStore.getMappedBytes() >> 20);
+        return new BoardRewards(geometry, rewardStore);
+    }
+
+    private static void saveModel(BoardRewards boardRewards, Path modelPath) {
+        try {
+            RewardSnapshot.save(boardRewards, modelPath);
+            System.out.println("Saved " + boardRewards.size() + " board rewards to " + modelPath);
+        } catch (IOException e) {
+            System.out.println("Could not save " + modelPath + ": " + e.getMessage());
+        }
+    }
+
+
     private static Player getHumanPlayer(Scanner stdInScanner) {
         System.out.print("Do you want to play X or O (X goes first): ");
 
@@ -53,7 +326,8 @@ public class TicTacToe {
     }
 
 
-    private static void interact(Scanner stdInScanner, BoardRewards boardRewards, Board startingBoard, Player humanPlayer) {
+    private static void interact(Scanner stdInScanner, ToDoubleFunction<Board> rewardOtherPlayer, Function<Board, Position> computerMove,
+                                 Board startingBoard, Player humanPlayer) {
         //boolean running = true;
         Board currentBoard = startingBoard;
         //Player computerPlayer = Player.O;
@@ -66,14 +340,14 @@ public class TicTacToe {
             if (currentBoard.getCurrentPlayer().equals(humanPlayer)) {
                 move = getPlayerMove(stdInScanner, currentBoard);
             } else {
-                move = getBestMove(boardRewards, currentBoard);
+                move = computerMove.apply(currentBoard);
 
                 System.out.println("\n\nComputer chooses move: " + move);
             }
 
             currentBoard = currentBoard.playMove(move);
 
-            double reward = boardRewards.getRewardOtherPlayer(currentBoard);
+            double reward = rewardOtherPlayer.applyAsDouble(currentBoard);
 
             System.out.printf("com.github.davenedde.gameengine.Player %s's move of %s gives a reward of %.2f%n",
                     currentBoard.getCurrentPlayer().getOtherPlayer(), move, reward);
@@ -98,7 +372,7 @@ public class TicTacToe {
                 System.exit(0);
             }
 
-            Position move = Position.fromString(idString);
+            Position move = currentBoard.getGeometry().getPosition(Integer.parseInt(idString));
 
             if (currentBoard.getEmptyPositions().contains(move)) {
                 playerMove = move;
@@ -109,22 +383,4 @@ public class TicTacToe {
 
         return playerMove;
     }
-
-
-private static Position getBestMove(BoardRewards boardRewards, Board board) {
-        double maxValue = -Double.MAX_VALUE;
-        Position bestMove = null;
-
-        for (Position emptyPosition : board.getEmptyPositions()) {
-            Board nextBoard = board.playMove(emptyPosition);
-            double nextMoveValue = boardRewards.getRewardOtherPlayer(nextBoard);
-
-            if (nextMoveValue > maxValue) {
-                maxValue = nextMoveValue;
-                bestMove = emptyPosition;
-            }
-        }
-
-        return bestMove;
-    }
 }
\ No newline at end of file
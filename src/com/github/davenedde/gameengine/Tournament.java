@@ -0,0 +1,160 @@
+package com.github.davenedde.gameengine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.random.RandomGenerator;
+
+/**
+ * Headless evaluation: plays many games between two {@link Agent}s spread across all cores.
+ * <p>
+ * The agents swap sides every game, so neither gets the advantage of always moving first.  Each worker thread plays
+ * its share of the games with its own SplittableRandom and counts results locally; the counts are summed at the end.
+ */
+class Tournament {
+    /** z-score for a 95% confidence interval */
+    private static final double Z_95 = 1.96;
+
+    private final int threadCount;
+
+
+    /** Outcome counts from the first agent's point of view */
+    static class MatchResult {
+        private final long wins;
+        private final long draws;
+        private final long losses;
+        private final long nanos;
+
+        MatchResult(long wins, long draws, long losses, long nanos) {
+            this.wins = wins;
+            this.draws = draws;
+            this.losses = losses;
+            this.nanos = nanos;
+        }
+
+        public long getGames() { return wins + draws + losses; }
+        public double getWinRate() { return (double) wins / getGames(); }
+        public double getDrawRate() { return (double) draws / getGames(); }
+        public double getLossRate() { return (double) losses / getGames(); }
+        public double getGamesPerSecond() { return getGames() * 1e9 / nanos; }
+
+        /**
+         * {low, high} bounds of the 95% Wilson score interval of a rate.  Unlike the normal approximation it does not
+         * collapse to zero width when the rate is exactly 0 or 1, e.g. a solver that never loses
+         */
+        public double[] getConfidenceInterval(double rate) {
+            double games = getGames();
+            double zSquared = Z_95 * Z_95;
+            double center = (rate + zSquared / (2 * games)) / (1 + zSquared / games);
+            double halfWidth = Z_95 / (1 + zSquared / games)
+                * Math.sqrt(rate * (1 - rate) / games + zSquared / (4 * games * games));
+            return new double[] {Math.max(0, center - halfWidth), Math.min(1, center + halfWidth)};
+        }
+
+        @Override
+        public String toString() {
+            return String.format("win %s, draw %s, loss %s, %d games at %.0f games/s",
+                formatRate(getWinRate()), formatRate(getDrawRate()), formatRate(getLossRate()),
+                getGames(), getGamesPerSecond());
+        }
+
+        private String formatRate(double rate) {
+            double[] interval = getConfidenceInterval(rate);
+            return String.format("%.4f [%.6f, %.6f]", rate, interval[0], interval[1]);
+        }
+    }
+
+
+    public Tournament() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public Tournament(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Need at least one tournament thread, got " + threadCount);
+        }
+        this.threadCount = threadCount;
+    }
+
+
+    /** Play the given number of games between the agents and return the results for the first agent */
+    public MatchResult play(Agent first, Agent second, long games) {
+        SplittableRandom rootRandom = new SplittableRandom();
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            long startNanos = System.nanoTime();
+
+            List<Future<long[]>> workers = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                long workerGames = games / threadCount + (i < games % threadCount ? 1 : 0);
+                SplittableRandom random = rootRandom.split();
+                workers.add(executor.submit(() -> playGames(first, second, workerGames, random)));
+            }
+
+            long[] outcomes = new long[3];
+            for (Future<long[]> worker : workers) {
+                long[] workerOutcomes = worker.get();
+                for (int i = 0; i < outcomes.length; i++) {
+                    outcomes[i] += workerOutcomes[i];
+                }
+            }
+
+            return new MatchResult(outcomes[0], outcomes[1], outcomes[2], System.nanoTime() - startNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted during tournament", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Tournament worker failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** Play the standard set of matches for a trained policy and print the results.  Games are on the standard board */
+    public void evaluate(PolicySnapshot policy, long gamesPerMatch) {
+        if (!policy.getGeometry().equals(BoardGeometry.STANDARD)) {
+            throw new IllegalArgumentException("Tournaments are played on the standard board, not " + policy.getGeometry());
+        }
+
+        Agent greedy = Agent.greedy(policy);
+        Agent random = Agent.random();
+        Agent softmax = Agent.softmax(policy, 0.1);
+        Agent solver = Agent.solver();
+
+        System.out.println("greedy vs random:  " + play(greedy, random, gamesPerMatch));
+        System.out.println("greedy vs softmax: " + play(greedy, softmax, gamesPerMatch));
+        System.out.println("greedy vs solver:  " + play(greedy, solver, gamesPerMatch));
+        System.out.println("solver vs random:  " + play(solver, random, gamesPerMatch));
+    }
+
+
+    /** Returns {wins, draws, losses} for the first agent */
+    private static long[] playGames(Agent first, Agent second, long games, RandomGenerator random) {
+        long[] outcomes = new long[3];
+        for (long game = 0; game < games; game++) {
+            Player firstPlayer = game % 2 == 0 ? Player.X : Player.O;
+
+            Board board = new Board(Player.X);
+            Optional<Player> winner = board.getWinner();
+            while (!winner.isPresent()) {
+                Agent agent = board.getCurrentPlayer().equals(firstPlayer) ? first : second;
+                board = board.playMove(agent.chooseMove(board, random));
+                winner = board.getWinner();
+            }
+
+            if (winner.get().equals(Player.TIE)) {
+                outcomes[1]++;
+            } else if (winner.get().equals(firstPlayer)) {
+                outcomes[0]++;
+            } else {
+                outcomes[2]++;
+            }
+        }
+        return outcomes;
+    }
+}
\ No newline at end of file
@@ -1,16 +1,12 @@
 package com.github.davenedde.gameengine;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
-import java.util.stream.Collectors;
+import java.util.random.RandomGenerator;
 
 class TrainingEngine {
     /**
@@ -28,42 +24,121 @@ class TrainingEngine {
     private static final double TRAINING_RATE = 0.8;
 
     /** Starting percentage of the number of random moves that will be made */
-    private static final double EXPLORATORY_RATE = 1.0;
+    static final double EXPLORATORY_RATE = 1.0;
 
     /** Percentage that the current exploratory rate will be reduced by each game played */
     //private static final double EXPLORATORY_DECAY_RATE = 0.999995;
-    private static final double EXPLORATORY_DECAY_RATE = 0.99999;
+    static final double EXPLORATORY_DECAY_RATE = 0.99999;
 
-    private static final Board STARTING_BOARD = new Board(Player.O);
-    private static final List<Position> STARTING_POSITIONS = STARTING_BOARD.getEmptyPositions();
+    /** Default upper bound on the number of training games */
+    static final long DEFAULT_MAX_TRAINING_GAMES = 200_000;
 
     /**
      * An upper bound on the number of training games that will be played.
      * Training games use random/exploratory moves.
      * A lower value here would need a larger training rate.
      */
-    private final long MAX_TRAINING_GAMES = 200_000;
+    private final long MAX_TRAINING_GAMES;
     /** An upper bound on the number of initial games where player O will make a random, exploratory move */
-    private final long MAX_O_TRAINING_GAMES = (long)(MAX_TRAINING_GAMES * 0.6);
+    private final long MAX_O_TRAINING_GAMES;
     /**
      * An upper bound on the number of initial games where player X will make a random, exploratory move.
      * We have X make more exploratory moves than O, so we can verify during training that X will lose games if it plays randomly.
      * Otherwise, all games would be tied.
      */
-    private final long MAX_X_TRAINING_GAMES = (long)(MAX_TRAINING_GAMES * 0.8);
+    private final long MAX_X_TRAINING_GAMES;
 
     /** Number of games to perform backweight propagation */
-    private final long MAX_BACKUP_GAMES = MAX_O_TRAINING_GAMES;
+    private final long MAX_BACKUP_GAMES;
 
-    /** Track number of random moves for logging */
+    /** Chooses exploratory moves while a player is still exploring */
+    private final ExplorationStrategy explorationStrategy;
+    /** Values the moves on exploringBoard for the strategy */
+    private final ExplorationStrategy.MoveValues moveValues = this::getMoveValue;
+    private Board exploringBoard;
+
+    /** Track number of exploratory moves for logging */
     private long playerOMadeRandomMove = 0;
     private long playerXMadeRandomMove = 0;
 
-    private final BoardRewards boardRewards = new BoardRewards();
-    private double currentExploratoryRate;
+    private final BoardRewards boardRewards;
+    /** Shape of every training board, from the rewards */
+    private final BoardGeometry geometry;
     private long trainingGameIndex;
 
-    private final Random random = new Random();
+    private final RandomGenerator random;
+
+    /**
+     * Trajectory of the current episode, reused for every game so the training loop does not allocate.
+     * episodeBoardKeys[ply] is the canonical key of the board before that ply (plus the final board),
+     * episodeMoves[ply] is the position number played.
+     */
+    private final long[] episodeBoardKeys;
+    private final byte[] episodeMoves;
+    private int episodeLength;
+    private Board episodeFinalBoard;
+
+    /** Recorded games to learn from again, or null to learn from each game once */
+    private ReplayBuffer replayBuffer;
+    private int replayBatchSize;
+
+    /** Where every training game is recorded, or null */
+    private GameLog.Writer gameLog;
+
+
+    public TrainingEngine() {
+        this(new BoardRewards(), new Random(), DEFAULT_MAX_TRAINING_GAMES, EXPLORATORY_DECAY_RATE);
+    }
+
+    /**
+     * Create an engine that trains into the given rewards, e.g. one of several parallel workers sharing a table.
+     * Games are played on boards of the rewards' {@link BoardGeometry}.
+     * The exploration schedule is scaled to maxTrainingGames.
+     */
+    TrainingEngine(BoardRewards boardRewards, RandomGenerator random, long maxTrainingGames, double exploratoryDecayRate) {
+        this(boardRewards, random, maxTrainingGames, new EpsilonGreedyExploration(EXPLORATORY_RATE, exploratoryDecayRate));
+    }
+
+    /** Create an engine that explores with the given strategy, e.g. {@link SoftmaxExploration} */
+    TrainingEngine(BoardRewards boardRewards, RandomGenerator random, long maxTrainingGames, ExplorationStrategy explorationStrategy) {
+        this.boardRewards = boardRewards;
+        this.geometry = boardRewards.getGeometry();
+        this.random = random;
+        this.explorationStrategy = explorationStrategy;
+
+        episodeBoardKeys = new long[geometry.getCells() + 1];
+        episodeMoves = new byte[geometry.getCells()];
+
+        MAX_TRAINING_GAMES = maxTrainingGames;
+        MAX_O_TRAINING_GAMES = (long)(MAX_TRAINING_GAMES * 0.6);
+        MAX_X_TRAINING_GAMES = (long)(MAX_TRAINING_GAMES * 0.8);
+        MAX_BACKUP_GAMES = MAX_O_TRAINING_GAMES;
+    }
+
+
+    /**
+     * Record every training game in the buffer and, after each game, replay the backups of replayBatchSize games
+     * sampled from it.
+     */
+    void setExperienceReplay(ReplayBuffer replayBuffer, int replayBatchSize) {
+        if (!geometry.hasExactKeys()) {
+            throw new IllegalArgumentException("Replay rebuilds boards from their keys, which " + geometry + " boards do not support");
+        }
+        if (replayBuffer.getMaxLength() < geometry.getCells()) {
+            throw new IllegalArgumentException("Replay buffer only holds games of up to " + replayBuffer.getMaxLength() + " moves");
+        }
+        this.replayBuffer = replayBuffer;
+        this.replayBatchSize = replayBatchSize;
+    }
+
+
+    /** Record every training game, packed, in the log.  Game logs only hold standard board games */
+    void setGameLog(GameLog.Writer gameLog) {
+        if (!geometry.equals(BoardGeometry.STANDARD)) {
+            throw new IllegalArgumentException("Game logs only record games on the standard board, not " + geometry);
+        }
+        this.gameLog = gameLog;
+    }
 
 
     public BoardRewards train() throws IOException {
@@ -73,69 +148,102 @@ class TrainingEngine {
     }
 
 
+    /**
+     * Play all training games into the shared rewards without clearing them and without any logging.
+     * Used by parallel training workers.
+     *
+     * @return the number of games played
+     */
+    long playTrainingGames() {
+        return playTrainingGames(MAX_TRAINING_GAMES, () -> {});
+    }
+
+    /**
+     * Same as {@link #playTrainingGames()}, running afterInterval every intervalGames games.
+     * The callback runs on the training thread between games, so it can read the rewards while they are not changing,
+     * e.g. to publish a {@link PolicySnapshot}.
+     */
+    long playTrainingGames(long intervalGames, Runnable afterInterval) {
+        explorationStrategy.reset();
+
+        trainingGameIndex = 0;
+        while (trainingGameIndex < MAX_TRAINING_GAMES) {
+            playEpisode();
+            explorationStrategy.endGame();
+
+            if (++trainingGameIndex % intervalGames == 0) {
+                afterInterval.run();
+            }
+        }
+
+        return trainingGameIndex;
+    }
+
+
     private void trainOnce() throws IOException {
         boardRewards.clear();
 
         long oWins = 0;
         long xWins = 0;
         long draws = 0;
-        long oPerfectStreak = 0;
-        long oLossesAfterTraining = 0;
         playerOMadeRandomMove = 0;
         playerXMadeRandomMove = 0;
-        currentExploratoryRate = EXPLORATORY_RATE;
-        double[] movingRewardSum = new double[9];
+        explorationStrategy.reset();
 
-        try (PrintWriter out = new PrintWriter(Files.newOutputStream(
-                    Paths.get("weights.tsv")), true)) {
+        // Stop once the rewards and greedy moves settle, rather than on a streak of games X fails to win
+        ConvergenceMonitor convergenceMonitor = ConvergenceMonitor.forGeometry(geometry);
 
-            //printInitialMoveWeightHeader(out);
-            System.out.printf("%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s%n", "i", "oWins", "xWins", "draws", "oStreak", "oRand", "xRand", "ExplRate");
+        Board startingBoard = new Board(geometry, Player.O);
+        List<Position> startingPositions = startingBoard.getEmptyPositions();
 
+        // Formatting and file output happen on the telemetry thread; this loop only fills preallocated samples
+        try (TrainingTelemetry telemetry = new TrainingTelemetry(Paths.get("weights.tsv"), startingPositions.size())) {
 
             trainingGameIndex = 0;
             while (trainingGameIndex < MAX_TRAINING_GAMES) {
-                GameResult gameResult = playGame();
-                currentExploratoryRate *= EXPLORATORY_DECAY_RATE;
+                Player winner = playEpisode();
+                explorationStrategy.endGame();
 
-                switch (gameResult.getWinner()) {
+                switch (winner) {
                     case TIE: draws++; break;
                     case O: oWins++; break;
                     case X: xWins++; break;
                 }
 
-                for (int iPos = 0; iPos < STARTING_POSITIONS.size(); iPos++) {
-                    movingRewardSum[iPos] += boardRewards.getRewardOtherPlayer(STARTING_BOARD.playMove(STARTING_POSITIONS.get(iPos)));
-                }
-
-                if ((trainingGameIndex+1) % 1000 == 0) {
-                    out.println(Arrays.stream(movingRewardSum)
-                        .mapToObj(rewardSum -> String.format("%f", rewardSum / 1000.0))
-                        .collect(Collectors.joining("\t")));
-                    for (int iPos = 0; iPos < STARTING_POSITIONS.size(); iPos++) {
-                        movingRewardSum[iPos] = 0;
+                boolean endOfWindow = ++trainingGameIndex % 10000 == 0;
+                boolean converged = endOfWindow && convergenceMonitor.update(boardRewards);
+
+                if (trainingGameIndex % 1000 == 0) {
+                    TrainingTelemetry.Sample sample = telemetry.claimSample(endOfWindow);
+                    if (sample != null) {
+                        sample.gameIndex = trainingGameIndex;
+                        sample.nanoTime = System.nanoTime();
+                        sample.oWins = oWins;
+                        sample.xWins = xWins;
+                        sample.draws = draws;
+                        sample.oRandomMoves = playerOMadeRandomMove;
+                        sample.xRandomMoves = playerXMadeRandomMove;
+                        sample.exploratoryRate = explorationStrategy.getRate();
+                        sample.rewardTableSize = boardRewards.size();
+                        sample.stableWindows = convergenceMonitor.getStableWindows();
+                        sample.greedyMoveFlips = convergenceMonitor.getGreedyMoveFlips();
+                        sample.maxValueChange = convergenceMonitor.getMaxValueChange();
+                        sample.policyQuality = convergenceMonitor.getPolicyQuality();
+                        // Peek so the probe does not add the probed boards to the table being trained
+                        for (int iPos = 0; iPos < startingPositions.size(); iPos++) {
+                            long firstMoveKey = startingBoard.getCanonicalKeyAfterMove(startingPositions.get(iPos));
+                            sample.firstMoveRewards[iPos] = 1.0 - boardRewards.peekRewardCurrentPlayer(firstMoveKey);
+                        }
+                        sample.endOfWindow = endOfWindow;
+                        telemetry.publishSample();
                     }
                 }
 
-                if (++trainingGameIndex % 10000 == 0) {
-                    System.out.printf("%s\t%s\t%s\t%s\t%s\t%s\t%s\t%f%n",
-                            trainingGameIndex, oWins, xWins, draws, oPerfectStreak, playerOMadeRandomMove, playerXMadeRandomMove, currentExploratoryRate);
-
-                    if (xWins == 0) {
-                        oPerfectStreak++;
-                        if (oPerfectStreak > 2) {
-                            break;
-                        }
-                    } else {
-                        oPerfectStreak = 0;
-                        if (trainingGameIndex > MAX_O_TRAINING_GAMES) {
-                            oLossesAfterTraining++;
-                            if (oLossesAfterTraining > 5) {
-                                //break;
-                            }
-                        }
-                    }
+                if (converged) {
+                    break;
+                }
 
+                if (endOfWindow) {
                     oWins = 0;
                     xWins = 0;
                     draws = 0;
@@ -143,154 +251,159 @@ class TrainingEngine {
                     playerXMadeRandomMove = 0;
                 }
             }
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException("Failed when writing stats", e);
         }
     }
 
-    private GameResult playGame() {
-        Board board = new Board(Math.random() > 0.5 ? Player.O : Player.X);
-
-        return playNextMove(board);
-    }
+    /** Play and learn from one training game.  Package-private so benchmarks can time a single episode */
+    GameResult playGame() {
+        Player winner = playEpisode();
 
+        List<Position> moves = new ArrayList<>(episodeLength);
+        for (int ply = 0; ply < episodeLength; ply++) {
+            moves.add(geometry.getPosition(episodeMoves[ply]));
+        }
 
-    private GameResult playNextMove(Board currentBoard) {
-        return playNextMove(currentBoard, new ArrayList<>());
+        return new GameResult(winner, moves, episodeFinalBoard);
     }
 
 
-    private GameResult playNextMove(Board currentBoard, ArrayList<Position> moves) {
+    /**
+     * Play one training game to the end, recording the trajectory in the episode buffers,
+     * then back the final reward up through every board of the game in a reverse loop over the buffers.
+     * Only the Board for each ply is allocated.
+     *
+     * @return the winner of the game
+     */
+    Player playEpisode() {
+        episodeLength = 0;
+
+        Player startingPlayer = random.nextDouble() > 0.5 ? Player.O : Player.X;
+        Board currentBoard = new Board(geometry, startingPlayer);
         Optional<Player> winner = currentBoard.getWinner();
 
-        if (!winner.isPresent()) {
-            Optional<Position> nextMove = getNextMove(currentBoard);
+        while (!winner.isPresent()) {
+            Position nextMove = getNextMove(currentBoard);
 
-            if (nextMove.isPresent()) {
-                moves.add(nextMove.get());
+            episodeBoardKeys[episodeLength] = currentBoard.getCanonicalKey();
+            episodeMoves[episodeLength] = (byte) nextMove.toPositionNumber();
+            episodeLength++;
 
-                Board nextBoard = currentBoard.playMove(nextMove.get());
+            currentBoard = currentBoard.playMove(nextMove);
+            winner = currentBoard.getWinner();
+        }
 
-                GameResult result = playNextMove(nextBoard, moves); // Recurse
+        // We have a winner
+        boardRewards.setRewardCurrentPlayer(currentBoard, BoardRewards.getTerminalRewardCurrentPlayer(currentBoard, winner.get()));
+        episodeBoardKeys[episodeLength] = currentBoard.getCanonicalKey();
+        episodeFinalBoard = currentBoard;
 
-                if (trainingGameIndex < MAX_BACKUP_GAMES) {
-                    backUpValue(currentBoard, nextBoard);
-                }
+        if (gameLog != null) {
+            gameLog.write(GameLog.pack(startingPlayer, episodeMoves, episodeLength, winner.get()));
+        }
 
-                return result;
-            } else {
-                throw new RuntimeException("unexpected");
+        if (trainingGameIndex < MAX_BACKUP_GAMES) {
+            // Last move first, so each board learns from a successor that has already been updated
+            for (int ply = episodeLength - 1; ply >= 0; ply--) {
+                backUpValue(episodeBoardKeys[ply], episodeBoardKeys[ply + 1]);
             }
-        } else {
-            // We have a winner
-            final double reward;
-            if (winner.get().equals(Player.TIE)) {
-                reward = 0.5;
-            } else if (winner.get().equals(currentBoard.getCurrentPlayer())) {
-                reward = 1.0;
-            } else if (winner.get().equals(currentBoard.getOtherPlayer())) {
-                reward = 0.0;
-            } else {
-                throw new RuntimeException();
-            }
-
-            boardRewards.setRewardCurrentPlayer(currentBoard, reward);
 
-            return new GameResult(winner.get(), moves, currentBoard);
+            if (replayBuffer != null) {
+                replayBuffer.add(episodeBoardKeys, episodeMoves, episodeLength);
+                replayBatch();
+            }
         }
-    }
 
+        return winner.get();
+    }
 
-    /** Adjust reward for current board based on the results from the next board */
-    private void backUpValue(Board currentBoard, Board nextBoard) {
-        double currentBoardValueToCurrentPlayer = boardRewards.getRewardCurrentPlayer(currentBoard);
-        double nextBoardValueToCurrentPlayer = boardRewards.getRewardOtherPlayer(nextBoard);
 
-        double newCurrentBoardValueToCurrentPlayer = currentBoardValueToCurrentPlayer +
-            TRAINING_RATE * (nextBoardValueToCurrentPlayer - currentBoardValueToCurrentPlayer);
+    /** Adjust reward for current board based on the results from the next board, both given as canonical keys */
+    private void backUpValue(long currentBoardKey, long nextBoardKey) {
+        double nextBoardValueToCurrentPlayer = 1.0 - boardRewards.getRewardCurrentPlayer(nextBoardKey);
 
-        boardRewards.setRewardCurrentPlayer(currentBoard, newCurrentBoardValueToCurrentPlayer);
+        // new value = current value + TRAINING_RATE * (next value - current value), applied atomically for shared rewards
+        boardRewards.backUpRewardCurrentPlayer(currentBoardKey, nextBoardValueToCurrentPlayer, TRAINING_RATE);
     }
 
-    /** Will return a potentially random move using existing move weights. */
-    private Optional<Position> getNextMove(Board board) {
-        List<Position> nextMoves = getNextMoves(board);
-        if (!nextMoves.isEmpty()) {
-
-            boolean explore = random.nextDouble() < currentExploratoryRate;
-
-            Player currentPlayer = board.getCurrentPlayer();
+    /**
+     * Back up a batch of recorded games again, updating each game's priority with its largest TD error.
+     * Recorded moves were partly exploratory, so each board is backed up toward its best move under the current
+     * rewards rather than toward the move that was played.
+     */
+    private void replayBatch() {
+        for (int i = 0; i < replayBatchSize; i++) {
+            int slot = replayBuffer.sample(random);
+
+            double maxTdError = 0;
+            for (int ply = replayBuffer.getLength(slot) - 1; ply >= 0; ply--) {
+                // Unpack the key rather than building a Board for every replayed ply
+                long boardKey = replayBuffer.getBoardKey(slot, ply);
+                long xMask = geometry.keyXMask(boardKey);
+                long oMask = geometry.keyOMask(boardKey);
+                boolean oToMove = geometry.keyOToMove(boardKey);
+
+                double target = -Double.MAX_VALUE;
+                for (long emptyMask = ~(xMask | oMask) & geometry.getFullMask(); emptyMask != 0; emptyMask &= emptyMask - 1) {
+                    long bit = Long.lowestOneBit(emptyMask);
+                    long nextBoardKey = oToMove
+                        ? geometry.canonicalKey(xMask, oMask | bit, false)
+                        : geometry.canonicalKey(xMask | bit, oMask, true);
+                    target = Math.max(target, 1.0 - boardRewards.getRewardCurrentPlayer(nextBoardKey));
+                }
 
-            if (explore &&
-                (currentPlayer.equals(Player.O) && trainingGameIndex < MAX_O_TRAINING_GAMES  ||
-                    currentPlayer.equals(Player.X) && trainingGameIndex < MAX_X_TRAINING_GAMES)) {
+                maxTdError = Math.max(maxTdError, Math.abs(target - boardRewards.getRewardCurrentPlayer(boardKey)));
+                boardRewards.backUpRewardCurrentPlayer(boardKey, target, TRAINING_RATE);
+            }
 
-                // X and O will stop making exploratory random moves after some time
-                // In the endgame, X will make totally random moves
+            replayBuffer.updatePriority(slot, maxTdError);
+        }
+    }
 
-                if (currentPlayer.equals(Player.O)) {
-                    playerOMadeRandomMove++;
-                } else {
-                    playerXMadeRandomMove++;
-                }
+    /** Will return a potentially exploratory move using existing move weights, without allocating. */
+    private Position getNextMove(Board board) {
+        long emptyMask = board.getEmptyMask();
+        if (emptyMask != 0) {
 
-                // Return a random, exploratory value
-                return Optional.of(nextMoves.get(random.nextInt(nextMoves.size())));
-            } else {
-                // Return max value
+            Player currentPlayer = board.getCurrentPlayer();
 
-                List<Double> nextMoveWeights = getNextMoveExistingRewards(board, nextMoves);
+            // X and O will stop making exploratory moves after some time
+            // In the endgame, X will make exploratory moves against the trained O
+            if (currentPlayer.equals(Player.O) && trainingGameIndex < MAX_O_TRAINING_GAMES  ||
+                    currentPlayer.equals(Player.X) && trainingGameIndex < MAX_X_TRAINING_GAMES) {
 
-                Position maxPosition = null;
-                double maxValue = -Double.MAX_VALUE;
-                for (int moveIndex = 0; moveIndex < nextMoveWeights.size(); moveIndex++) {
-                    if (nextMoveWeights.get(moveIndex) > maxValue) {
-                        maxValue = nextMoveWeights.get(moveIndex);
-                        maxPosition = nextMoves.get(moveIndex);
+                exploringBoard = board;
+                long exploratoryBit = explorationStrategy.explore(emptyMask, moveValues, random);
+                if (exploratoryBit != 0) {
+                    if (currentPlayer.equals(Player.O)) {
+                        playerOMadeRandomMove++;
+                    } else {
+                        playerXMadeRandomMove++;
                     }
+                    return geometry.getLowestPosition(exploratoryBit);
                 }
+            }
+
+            // Return max value
 
-                return Optional.ofNullable(maxPosition);
+            Position maxPosition = null;
+            double maxValue = -Double.MAX_VALUE;
+            for (; emptyMask != 0; emptyMask &= emptyMask - 1) {
+                Position move = geometry.getLowestPosition(emptyMask);
+                double moveValue = 1.0 - boardRewards.getRewardCurrentPlayer(board.getCanonicalKeyAfterMove(move));
+                if (moveValue > maxValue) {
+                    maxValue = moveValue;
+                    maxPosition = move;
+                }
             }
+
+            return maxPosition;
         } else {
-            return Optional.empty();
+            throw new RuntimeException("No moves left on board " + board);
         }
     }
 
-    private List<Position> getNextMoves(Board board) {
-        return board.getEmptyPositions();
-    }
-
-    /**
-     * Return rewards for the current player for each move.
-     */
-    private List<Double> getNextMoveExistingRewards(Board currentBoard, List<Position> nextMoves) {
-        return nextMoves.stream()
-            .map(currentBoard::playMove)
-            .mapToDouble(boardAfterMove -> boardRewards.getRewardOtherPlayer(boardAfterMove))
-            .boxed()
-            .collect(Collectors.toList());
+    /** Value for the player to move on exploringBoard of taking the space bit */
+    private double getMoveValue(long bit) {
+        return 1.0 - boardRewards.getRewardCurrentPlayer(exploringBoard.getCanonicalKeyAfterMove(geometry.getLowestPosition(bit)));
     }
-
-    /**
-     * SoftMax weighting maps win probabilities into good values to use for determining which next move to make.
-     * We don't want to just choose the best value or the values based on the win percentages.
-     * Returned values will sum to 1.0.
-     * <a href="https://en.wikipedia.org/wiki/Softmax_function">Softmax function</a>
-     */
-    public List<Double> getNextMoveSoftMaxWeights(Board currentBoard, List<Position> nextMoves, Player currentPlayer) {
-        // SoftMax is the exp() of each current weight value...
-        List<Double> nextMoveExpWeights = getNextMoveExistingRewards(currentBoard, nextMoves).stream()
-                .mapToDouble(Math::exp)
-                .boxed()
-                .collect(Collectors.toList());
-
-        double sumOfExpValues = nextMoveExpWeights.stream().mapToDouble(Double::doubleValue).sum();
-
-        // ... divided by the sum of all exp values
-        return nextMoveExpWeights.stream()
-            .map(nextMoveWeight -> nextMoveWeight / sumOfExpValues)
-            .collect(Collectors.toList());
-    }
-
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.github.davenedde.gameengine;
+
+/** Live training statistics published over JMX by {@link TrainingTelemetry} */
+public interface TrainingStatsMBean {
+    long getGamesPlayed();
+
+    /** Training rate over the most recent sample interval */
+    double getGamesPerSecond();
+
+    /** Average time per training game over the most recent sample interval */
+    double getNanosPerGame();
+
+    double getExploratoryRate();
+
+    int getRewardTableSize();
+
+    /** Periodic samples discarded because the background writer fell behind.  Window-end samples are never dropped */
+    long getDroppedSamples();
+}
\ No newline at end of file
@@ -0,0 +1,228 @@
+package com.github.davenedde.gameengine;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * Moves training statistics off the training thread.
+ * <p>
+ * The training thread fills preallocated {@link Sample}s in a single-producer/single-consumer ring buffer.  Periodic
+ * samples never block: if the buffer is nearly full the sample is dropped and counted.  The last slots are kept for
+ * window-end samples, which are never dropped; one only waits if the writer is so far behind that even those are
+ * full.  A background thread formats each sample into weights.tsv (first move rewards) and, at the end of each
+ * window, a summary line on stdout.
+ * Live rates are exposed through JMX as {@value #MBEAN_NAME}.
+ */
+class TrainingTelemetry implements TrainingStatsMBean, AutoCloseable {
+    static final String MBEAN_NAME = "com.github.davenedde.gameengine:type=TrainingStats";
+
+    private static final int RING_SIZE = 1024;
+    /** Slots only window-end samples may claim, so their summaries are not lost when periodic samples back up */
+    private static final int WINDOW_END_SLOTS = 128;
+    private static final long POLL_NANOS = 10_000_000;
+
+    /** One row of training statistics.  Instances are reused by the ring buffer */
+    static class Sample {
+        long gameIndex;
+        long nanoTime;
+        long oWins;
+        long xWins;
+        long draws;
+        long oRandomMoves;
+        long xRandomMoves;
+        double exploratoryRate;
+        int rewardTableSize;
+        /** Convergence of the rewards as of the last completed window, see {@link ConvergenceMonitor} */
+        int stableWindows;
+        int greedyMoveFlips;
+        double maxValueChange;
+        double policyQuality;
+        /** Reward for the player making each first move from the starting board */
+        final double[] firstMoveRewards;
+        /** Whether this sample closes a counting window and should be printed to stdout */
+        boolean endOfWindow;
+
+        Sample(int firstMoves) {
+            firstMoveRewards = new double[firstMoves];
+        }
+    }
+
+    private final long startNanoTime = System.nanoTime();
+
+    private final Sample[] ring = new Sample[RING_SIZE];
+    /** Number of samples claimed by the training thread; only touched by that thread */
+    private long claimed;
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private final AtomicLong droppedSamples = new AtomicLong();
+
+    private final PrintWriter weightsOut;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    private final ObjectName mBeanName;
+
+    // Written by the background thread, read over JMX
+    private volatile long gamesPlayed;
+    private volatile double gamesPerSecond;
+    private volatile double nanosPerGame;
+    private volatile double exploratoryRate;
+    private volatile int rewardTableSize;
+
+
+    /** firstMoves is the number of first moves whose rewards each sample records: one per space of the board */
+    public TrainingTelemetry(Path weightsPath, int firstMoves) throws IOException {
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = new Sample(firstMoves);
+        }
+
+        weightsOut = new PrintWriter(Files.newBufferedWriter(weightsPath));
+
+        try {
+            mBeanName = new ObjectName(MBEAN_NAME);
+            if (mBeanServer.isRegistered(mBeanName)) {
+                mBeanServer.unregisterMBean(mBeanName); // Left over from an earlier training run
+            }
+            mBeanServer.registerMBean(new StandardMBean(this, TrainingStatsMBean.class), mBeanName);
+        } catch (JMException e) {
+            throw new RuntimeException("Failed to register training statistics MBean", e);
+        }
+
+        writerThread = new Thread(this::writeSamples, "training-telemetry");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+
+    /**
+     * Return the next free sample for the training thread to fill, or null if the writer has fallen behind and the
+     * sample is a periodic one.  A window-end sample is always returned.  Call {@link #publishSample()} once it is
+     * filled.
+     */
+    Sample claimSample(boolean endOfWindow) {
+        int capacity = endOfWindow ? ring.length : ring.length - WINDOW_END_SLOTS;
+        while (claimed - consumed.get() >= capacity) {
+            if (!endOfWindow) {
+                droppedSamples.incrementAndGet();
+                return null;
+            }
+            Thread.onSpinWait();
+        }
+        return ring[(int) (claimed & (ring.length - 1))];
+    }
+
+    /** Hand the sample returned by {@link #claimSample(boolean)} to the background writer */
+    void publishSample() {
+        published.lazySet(++claimed);
+    }
+
+
+    private void writeSamples() {
+        System.out.printf("%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s%n",
+            "i", "oWins", "xWins", "draws", "oRand", "xRand", "ExplRate", "Stable", "Flips", "MaxDelta", "Optimal");
+
+        long lastGameIndex = 0;
+        long lastNanoTime = startNanoTime;
+
+        while (running || consumed.get() < published.get()) {
+            long next = consumed.get();
+            if (next == published.get()) {
+                weightsOut.flush();
+                LockSupport.parkNanos(POLL_NANOS);
+                continue;
+            }
+
+            Sample sample = ring[(int) (next & (ring.length - 1))];
+
+            long games = sample.gameIndex - lastGameIndex;
+            long nanos = sample.nanoTime - lastNanoTime;
+            if (games > 0 && nanos > 0) {
+                nanosPerGame = (double) nanos / games;
+                gamesPerSecond = games * 1e9 / nanos;
+            }
+            lastGameIndex = sample.gameIndex;
+            lastNanoTime = sample.nanoTime;
+            gamesPlayed = sample.gameIndex;
+            exploratoryRate = sample.exploratoryRate;
+            rewardTableSize = sample.rewardTableSize;
+
+            StringBuilder line = new StringBuilder();
+            for (int iPos = 0; iPos < sample.firstMoveRewards.length; iPos++) {
+                line.append(iPos == 0 ? "" : "\t").append(String.format("%f", sample.firstMoveRewards[iPos]));
+            }
+            weightsOut.println(line);
+
+            if (sample.endOfWindow) {
+                System.out.printf("%s\t%s\t%s\t%s\t%s\t%s\t%f\t%s\t%s\t%f\t%f%n",
+                    sample.gameIndex, sample.oWins, sample.xWins, sample.draws,
+                    sample.oRandomMoves, sample.xRandomMoves, sample.exploratoryRate,
+                    sample.stableWindows, sample.greedyMoveFlips, sample.maxValueChange, sample.policyQuality);
+            }
+
+            consumed.lazySet(next + 1); // Sample may now be reused by the training thread
+        }
+
+        weightsOut.flush();
+    }
+
+    /** Write out every published sample, then stop the background thread and unregister the MBean */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        weightsOut.close();
+
+        try {
+            mBeanServer.unregisterMBean(mBeanName);
+        } catch (JMException e) {
+            // Already gone, nothing to clean up
+        }
+    }
+
+
+    @Override
+    public long getGamesPlayed() {
+        return gamesPlayed;
+    }
+
+    @Override
+    public double getGamesPerSecond() {
+        return gamesPerSecond;
+    }
+
+    @Override
+    public double getNanosPerGame() {
+        return nanosPerGame;
+    }
+
+    @Override
+    public double getExploratoryRate() {
+        return exploratoryRate;
+    }
+
+    @Override
+    public int getRewardTableSize() {
+        return rewardTableSize;
+    }
+
+    @Override
+    public long getDroppedSamples() {
+        return droppedSamples.get();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.github.davenedde.gameengine;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size, direct-mapped cache of search results keyed by canonical board key, used by {@link NegamaxSolver}.
+ * <p>
+ * Each slot holds one board: the score, whether that score is exact or only a bound, the search depth behind it,
+ * and the canonical key of the best child found so it can be searched first next time.
+ * A new result replaces the slot unless it is for the same board and was searched less deeply.
+ */
+class TranspositionTable {
+    static final byte EMPTY = 0;
+    static final byte EXACT = 1;
+    /** Score is at least the stored value (search failed high) */
+    static final byte LOWER_BOUND = 2;
+    /** Score is at most the stored value (search failed low) */
+    static final byte UPPER_BOUND = 3;
+
+    private final long[] keys;
+    private final long[] bestChildKeys;
+    private final int[] scores;
+    private final byte[] depths;
+    private final byte[] flags;
+    private final int mask;
+
+
+    public TranspositionTable(int size) {
+        int capacity = Integer.highestOneBit(Math.max(size, 2) - 1) * 2;
+        keys = new long[capacity];
+        bestChildKeys = new long[capacity];
+        scores = new int[capacity];
+        depths = new byte[capacity];
+        flags = new byte[capacity];
+        mask = capacity - 1;
+    }
+
+
+    /** Return the slot holding the key, or -1 if it is not cached */
+    int find(long key) {
+        int slot = RewardTable.hash(key) & mask;
+        return flags[slot] != EMPTY && keys[slot] == key ? slot : -1;
+    }
+
+    void store(long key, int score, byte flag, int depth, long bestChildKey) {
+        int slot = RewardTable.hash(key) & mask;
+        if (flags[slot] != EMPTY && keys[slot] == key && depths[slot] > depth) {
+            return; // Keep the deeper result for this board
+        }
+        keys[slot] = key;
+        scores[slot] = score;
+        flags[slot] = flag;
+        depths[slot] = (byte) depth;
+        bestChildKeys[slot] = bestChildKey;
+    }
+
+    int getScore(int slot) {
+        return scores[slot];
+    }
+
+    byte getFlag(int slot) {
+        return flags[slot];
+    }
+
+    int getDepth(int slot) {
+        return depths[slot];
+    }
+
+    long getBestChildKey(int slot) {
+        return bestChildKeys[slot];
+    }
+
+    void clear() {
+        Arrays.fill(flags, EMPTY);
+    }
+}
\ No newline at end of file
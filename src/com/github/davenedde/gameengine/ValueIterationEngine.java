@@ -0,0 +1,166 @@
+package com.github.davenedde.gameengine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Alternative to TrainingEngine that learns from the whole state space instead of sampled games.
+ * <p>
+ * Every reachable canonical board is enumerated once into dense arrays: its key, whether it is finished, and the
+ * indexes of its children in compressed-row form.  Synchronous value-iteration sweeps then set each unfinished
+ * board's reward to the best (1 - child reward) over its children, with each sweep split across cores by fork/join,
+ * until the largest change in a sweep falls below the tolerance.  The result is an ordinary BoardRewards.
+ */
+class ValueIterationEngine {
+    private static final double DEFAULT_TOLERANCE = 1e-9;
+    private static final int MAX_SWEEPS = 1000;
+
+    /** Boards per fork/join leaf task */
+    private static final int SWEEP_CHUNK = 256;
+
+    private final double tolerance;
+    private final ForkJoinPool pool;
+
+    private long[] keys;
+    private boolean[] finished;
+    /** Children of board i are children[childStart[i]] .. children[childStart[i + 1] - 1] */
+    private int[] childStart;
+    private int[] children;
+
+    private double[] values;
+    private double[] nextValues;
+
+
+    public ValueIterationEngine() {
+        this(DEFAULT_TOLERANCE, ForkJoinPool.commonPool());
+    }
+
+    public ValueIterationEngine(double tolerance, ForkJoinPool pool) {
+        this.tolerance = tolerance;
+        this.pool = pool;
+    }
+
+
+    public BoardRewards train() {
+        long startNanos = System.nanoTime();
+
+        enumerateStates();
+
+        int sweeps = 0;
+        double maxDelta;
+        do {
+            maxDelta = pool.invoke(new SweepTask(0, keys.length));
+
+            double[] swap = values;
+            values = nextValues;
+            nextValues = swap;
+            sweeps++;
+        } while (maxDelta >= tolerance && sweeps < MAX_SWEEPS);
+
+        RewardTable rewardTable = new RewardTable(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            rewardTable.put(keys[i], values[i]);
+        }
+
+        System.out.printf("Value iteration: %d boards, %d sweeps, max delta %g in %.1f ms%n",
+            keys.length, sweeps, maxDelta, (System.nanoTime() - startNanos) / 1e6);
+
+        return new BoardRewards(rewardTable);
+    }
+
+
+    /** Breadth-first walk from both starting players, assigning each canonical board a dense index */
+    private void enumerateStates() {
+        Map<Long, Integer> keyToIndex = new HashMap<>();
+        List<Board> boards = new ArrayList<>();
+        List<int[]> boardChildren = new ArrayList<>();
+
+        for (Player startingPlayer : new Player[] { Player.X, Player.O }) {
+            Board startingBoard = new Board(startingPlayer);
+            if (keyToIndex.putIfAbsent(startingBoard.getCanonicalKey(), boards.size()) == null) {
+                boards.add(startingBoard);
+            }
+        }
+
+        for (int i = 0; i < boards.size(); i++) {
+            Board board = boards.get(i);
+            List<Position> moves = board.getWinner().isPresent() ? List.of() : board.getEmptyPositions();
+
+            int[] childIndexes = new int[moves.size()];
+            for (int move = 0; move < moves.size(); move++) {
+                Board child = board.playMove(moves.get(move));
+                Integer childIndex = keyToIndex.putIfAbsent(child.getCanonicalKey(), boards.size());
+                if (childIndex == null) {
+                    childIndex = boards.size();
+                    boards.add(child);
+                }
+                childIndexes[move] = childIndex;
+            }
+            boardChildren.add(childIndexes);
+        }
+
+        int stateCount = boards.size();
+        keys = new long[stateCount];
+        finished = new boolean[stateCount];
+        childStart = new int[stateCount + 1];
+        values = new double[stateCount];
+        nextValues = new double[stateCount];
+        children = new int[boardChildren.stream().mapToInt(childIndexes -> childIndexes.length).sum()];
+
+        for (int i = 0; i < stateCount; i++) {
+            Board board = boards.get(i);
+            keys[i] = board.getCanonicalKey();
+            finished[i] = board.getWinner().isPresent();
+            values[i] = finished[i] ? BoardRewards.getTerminalRewardCurrentPlayer(board, board.getWinner().get()) : 0.5;
+            nextValues[i] = values[i];
+
+            int[] childIndexes = boardChildren.get(i);
+            System.arraycopy(childIndexes, 0, children, childStart[i], childIndexes.length);
+            childStart[i + 1] = childStart[i] + childIndexes.length;
+        }
+    }
+
+
+    /** One synchronous sweep over boards [from, to), returning the largest change */
+    private class SweepTask extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        SweepTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Double compute() {
+            if (to - from > SWEEP_CHUNK) {
+                int middle = (from + to) >>> 1;
+                SweepTask left = new SweepTask(from, middle);
+                left.fork();
+                double rightDelta = new SweepTask(middle, to).compute();
+                return Math.max(left.join(), rightDelta);
+            }
+
+            double maxDelta = 0;
+            for (int i = from; i < to; i++) {
+                if (finished[i]) {
+                    continue;
+                }
+
+                double best = -Double.MAX_VALUE;
+                for (int c = childStart[i]; c < childStart[i + 1]; c++) {
+                    best = Math.max(best, 1.0 - values[children[c]]);
+                }
+                nextValues[i] = best;
+                maxDelta = Math.max(maxDelta, Math.abs(best - values[i]));
+            }
+            return maxDelta;
+        }
+    }
+}
\ No newline at end of file